@@ -68,6 +68,7 @@ public final class IntellijLanguageClient implements Disposable {
     private final Map<Pair<String, String>, LanguageServerDefinition> extToServerDefinition = new ConcurrentHashMap<>();
     private final Map<String, LSPExtensionManager> extToExtManager = new ConcurrentHashMap<>();
     private List<Object> configParams;
+    private volatile boolean hoverPrefetchEnabled = false;
 
     public void reset(){
         dispose();
@@ -83,7 +84,8 @@ public final class IntellijLanguageClient implements Disposable {
             // Adds editor listener.
             EditorFactory.getInstance().addEditorFactoryListener(new LSPEditorListener(), this);
             // Adds VFS listener.
-            VirtualFileManager.getInstance().addVirtualFileListener(new VFSListener());
+            ApplicationManager.getApplication().getMessageBus().connect().subscribe(VirtualFileManager.VFS_CHANGES,
+                    new VFSListener());
             // Adds document event listener.
             ApplicationManager.getApplication().getMessageBus().connect().subscribe(AppTopics.FILE_DOCUMENT_SYNC,
                     new LSPFileDocumentManagerListener());
@@ -358,6 +360,24 @@ public final class IntellijLanguageClient implements Disposable {
         setTimeouts(newTimeout);
     }
 
+    /**
+     * @return True if hover information is prefetched for the identifier under the mouse
+     */
+    public boolean isHoverPrefetchEnabled() {
+        return hoverPrefetchEnabled;
+    }
+
+    /**
+     * Enables or disables prefetching hover information when the mouse rests on an identifier, so that the hover
+     * can be shown without waiting for the server once the Ctrl/Cmd key is pressed. Disabled by default.
+     *
+     * @param enabled true to enable hover prefetching.
+     */
+    @SuppressWarnings("unused")
+    public void setHoverPrefetchEnabled(boolean enabled) {
+        this.hoverPrefetchEnabled = enabled;
+    }
+
     public  void removeWrapper(LanguageServerWrapper wrapper) {
         if (wrapper.getProject() != null) {
             String[] extensions = wrapper.getServerDefinition().ext.split(LanguageServerDefinition.SPLIT_CHAR);
@@ -365,7 +385,8 @@ public final class IntellijLanguageClient implements Disposable {
                 extToLanguageWrapper.remove(new MutablePair<>(ext, FileUtils.pathToUri(
                         new File(wrapper.getProjectRootPath()).getAbsolutePath())));
             }
-            wrapper.stop(true);
+            // Shared servers keep running as long as other projects are attached to them.
+            wrapper.release();
             wrapper.removeWidget();
         } else {
             LOG.error("No attached projects found for wrapper.");
@@ -415,6 +436,16 @@ public final class IntellijLanguageClient implements Disposable {
         }
     }
 
+    /**
+     * Returns the workspace folders of all the given projects (i.e. the projects of a shared server).
+     */
+    @NotNull
+    public List<WorkspaceFolder> getWorkspaceFolderList(@NotNull List<Project> projects) {
+        List<WorkspaceFolder> folders = new ArrayList<>();
+        projects.forEach(project -> folders.addAll(getWorkspaceFolderList(project)));
+        return folders;
+    }
+
     @NotNull
     public List<WorkspaceFolder> getWorkspaceFolderList(Project project) {
         if (project != null) {
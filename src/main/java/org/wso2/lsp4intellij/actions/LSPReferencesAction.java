@@ -22,26 +22,28 @@ import com.intellij.find.findUsages.FindUsagesOptions;
 import com.intellij.find.findUsages.PsiElement2UsageTargetAdapter;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.LogicalPosition;
 import com.intellij.openapi.project.DumbAwareAction;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.ui.LightweightHint;
-import com.intellij.usageView.UsageInfo;
 import com.intellij.usageView.UsageViewUtil;
 import com.intellij.usages.*;
 import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import org.wso2.lsp4intellij.contributors.psi.LSPPsiElement;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
+import org.wso2.lsp4intellij.utils.ApplicationUtils;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Action for references / see usages (SHIFT+ALT+F7)
@@ -56,56 +58,81 @@ public class LSPReferencesAction extends DumbAwareAction {
             if (eventManager == null) {
                 return;
             }
-            List<PsiElement2UsageTargetAdapter> targets = new ArrayList<>();
-            Pair<List<PsiElement>, List<VirtualFile>> references = eventManager
-                    .references(editor.getCaretModel().getCurrentCaret().getOffset());
-            if (references.first != null && references.second != null) {
-                references.first.forEach(element -> targets.add(new PsiElement2UsageTargetAdapter(element)));
-            }
-            showReferences(editor, targets, editor.getCaretModel().getCurrentCaret().getLogicalPosition());
+            forManagerAndOffset(eventManager, editor.getCaretModel().getCurrentCaret().getOffset());
         }
     }
 
+    /**
+     * Shows the usage view right away and streams the references into it while they are being resolved.
+     */
     public void forManagerAndOffset(EditorEventManager manager, int offset) {
-        List<PsiElement2UsageTargetAdapter> targets = new ArrayList<>();
-        Pair<List<PsiElement>, List<VirtualFile>> references = manager.references(offset);
-        if (references.first != null && references.second != null) {
-            references.first.forEach(element -> targets.add(new PsiElement2UsageTargetAdapter(element)));
-        }
         Editor editor = manager.editor;
-        showReferences(editor, targets, editor.offsetToLogicalPosition(offset));
-    }
+        Project project = editor.getProject();
+        if (project == null) {
+            return;
+        }
+        PsiElement target = createTarget(manager, offset);
+        if (target == null) {
+            return;
+        }
+        LogicalPosition position = editor.offsetToLogicalPosition(offset);
+        AtomicInteger found = new AtomicInteger();
+        UsageSearcher searcher = processor -> manager.processReferences(offset, false, info -> {
+            found.incrementAndGet();
+            return processor.process(new UsageInfo2UsageAdapter(info));
+        });
+        UsageViewPresentation presentation = createPresentation(target, new FindUsagesOptions(project), false);
+        UsageViewManager.getInstance(project)
+                .searchAndShowUsages(new UsageTarget[]{new PsiElement2UsageTargetAdapter(target)}, () -> searcher,
+                        true, false, presentation, new UsageViewManager.UsageViewStateListener() {
+                            @Override
+                            public void usageViewCreated(@NotNull UsageView usageView) {
+                            }
 
-    private void showReferences(Editor editor, List<PsiElement2UsageTargetAdapter> targets, LogicalPosition position) {
-        if (targets.isEmpty()) {
-            short constraint = HintManager.ABOVE;
-            int flags = HintManager.HIDE_BY_ANY_KEY | HintManager.HIDE_BY_TEXT_CHANGE | HintManager.HIDE_BY_SCROLLING;
-            JLabel label = new JLabel("No references found");
-            label.setBackground(JBUI.CurrentTheme.Validator.errorBackgroundColor());
-            LightweightHint hint = new LightweightHint(label);
-            Point p = HintManagerImpl.getHintPosition(hint, editor, position, constraint);
-            HintManagerImpl.getInstanceImpl().showEditorHint(hint, editor, p, flags, 0, false,
-                    HintManagerImpl.createHintHint(editor, p, hint, constraint).setContentActive(false));
-        } else {
-            List<Usage> usages = new ArrayList<>();
-            targets.forEach(ut -> {
-                PsiElement elem = ut.getElement();
-                usages.add(new UsageInfo2UsageAdapter(new UsageInfo(elem, -1, -1, false)));
-            });
+                            @Override
+                            public void findingUsagesFinished(UsageView usageView) {
+                                if (found.get() == 0) {
+                                    ApplicationUtils.invokeLater(() -> showNoReferencesHint(editor, position));
+                                }
+                            }
+                        });
+    }
 
-            if (editor == null) {
-                return;
+    /**
+     * Creates the element of the identifier at the given offset, which is the target of the search.
+     */
+    private PsiElement createTarget(EditorEventManager manager, int offset) {
+        return ApplicationUtils.computableReadAction(() -> {
+            Document document = manager.editor.getDocument();
+            PsiFile file = PsiDocumentManager.getInstance(manager.getProject()).getPsiFile(document);
+            if (file == null) {
+                return null;
             }
-            Project project = editor.getProject();
-            if (project == null) {
-                return;
+            CharSequence text = document.getCharsSequence();
+            int start = Math.min(offset, text.length());
+            while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+                start--;
+            }
+            int end = Math.min(offset, text.length());
+            while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+                end++;
             }
-            UsageViewPresentation presentation = createPresentation(targets.get(0).getElement(),
-                    new FindUsagesOptions(editor.getProject()), false);
-            UsageViewManager.getInstance(project)
-                    .showUsages(new UsageTarget[]{targets.get(0)}, usages.toArray(new Usage[0]),
-                            presentation);
+            return new LSPPsiElement(manager.getProject(), start, end, file);
+        });
+    }
+
+    private void showNoReferencesHint(Editor editor, LogicalPosition position) {
+        if (editor.isDisposed()) {
+            return;
         }
+        short constraint = HintManager.ABOVE;
+        int flags = HintManager.HIDE_BY_ANY_KEY | HintManager.HIDE_BY_TEXT_CHANGE | HintManager.HIDE_BY_SCROLLING;
+        JLabel label = new JLabel("No references found");
+        label.setBackground(JBUI.CurrentTheme.Validator.errorBackgroundColor());
+        LightweightHint hint = new LightweightHint(label);
+        Point p = HintManagerImpl.getHintPosition(hint, editor, position, constraint);
+        HintManagerImpl.getInstanceImpl().showEditorHint(hint, editor, p, flags, 0, false,
+                HintManagerImpl.createHintHint(editor, p, hint, constraint).setContentActive(false));
     }
 
     private UsageViewPresentation createPresentation(PsiElement psiElement, FindUsagesOptions options,
@@ -21,6 +21,9 @@ import org.jetbrains.annotations.Nullable;
 import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * The client context which is received by {@link DefaultLanguageClient}. The context contain
  * information about the runtime and its components.
@@ -41,9 +44,26 @@ public interface ClientContext {
     @Nullable
     Project getProject();
 
+    /**
+     * Returns the projects served by the Language Server, which are more than one if the server is shared.
+     */
+    @NotNull
+    default List<Project> getProjects() {
+        Project project = getProject();
+        return project != null ? Collections.singletonList(project) : Collections.emptyList();
+    }
+
     /**
      * Returns the {@link RequestManager} associated with the Language Server Connection.
      */
     @Nullable
     RequestManager getRequestManager();
+
+    /**
+     * Returns false while the Language Server doesn't serve the editors yet (e.g. a warm spare server), in which case
+     * its diagnostics, messages and edits are ignored.
+     */
+    default boolean isActive() {
+        return true;
+    }
 }
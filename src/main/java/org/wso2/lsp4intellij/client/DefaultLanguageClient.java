@@ -15,6 +15,9 @@
  */
 package org.wso2.lsp4intellij.client;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
 import com.intellij.notification.*;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.application.ApplicationManager;
@@ -25,6 +28,7 @@ import com.intellij.util.ui.UIUtil;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.wso2.lsp4intellij.IntellijLanguageClient;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
@@ -38,6 +42,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
 
 public class DefaultLanguageClient implements LanguageClient {
 
@@ -49,6 +54,10 @@ public class DefaultLanguageClient implements LanguageClient {
     @NotNull
     final private Map<String, DynamicRegistrationMethods> registrations = new ConcurrentHashMap<>();
     @NotNull
+    private final Map<String, List<FileSystemWatcher>> fileWatchers = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile FileWatcherMatcher fileWatcherMatcher;
+    @NotNull
     private final ClientContext context;
     protected boolean isModal = false;
 
@@ -60,24 +69,29 @@ public class DefaultLanguageClient implements LanguageClient {
     public InitializeParams getInitParams(String projectRootPath) {
         InitializeParams initParams = new InitializeParams();
         initParams.setRootUri(FileUtils.pathToUri(projectRootPath));
-        initParams.setWorkspaceFolders(ServiceManager.getService(IntellijLanguageClient.class).getWorkspaceFolderList(context.getProject()));
+        initParams.setWorkspaceFolders(ServiceManager.getService(IntellijLanguageClient.class).getWorkspaceFolderList(context.getProjects()));
 
         final List<SymbolKind> supportedSymbols = Arrays.asList(SymbolKind.Class, SymbolKind.Interface, SymbolKind.Method, SymbolKind.Constructor, SymbolKind.Field, SymbolKind.Constant, SymbolKind.Function);
 
         // TODO: update capabilities when implemented
         WorkspaceClientCapabilities workspaceClientCapabilities = new WorkspaceClientCapabilities();
         workspaceClientCapabilities.setApplyEdit(true);
-        workspaceClientCapabilities.setDidChangeWatchedFiles(new DidChangeWatchedFilesCapabilities());
+        workspaceClientCapabilities.setDidChangeWatchedFiles(new DidChangeWatchedFilesCapabilities(true));
         workspaceClientCapabilities.setExecuteCommand(new ExecuteCommandCapabilities());
         workspaceClientCapabilities.setWorkspaceEdit(new WorkspaceEditCapabilities());
         workspaceClientCapabilities.setSymbol(new SymbolCapabilities(new SymbolKindCapabilities(supportedSymbols)));
         workspaceClientCapabilities.setWorkspaceFolders(true);
         workspaceClientCapabilities.setConfiguration(false);
 
+        // Completion items are resolved lazily (see EditorEventManager#resolveCompletionItem), hence servers supporting
+        // completionItem/resolve can omit the documentation and the detail in the initial completion response.
+        CompletionItemCapabilities completionItemCapabilities = new CompletionItemCapabilities(true);
+        completionItemCapabilities.setDocumentationFormat(Arrays.asList(MarkupKind.MARKDOWN, MarkupKind.PLAINTEXT));
+
         TextDocumentClientCapabilities textDocumentClientCapabilities = new TextDocumentClientCapabilities();
         textDocumentClientCapabilities.setPublishDiagnostics( new PublishDiagnosticsCapabilities(true, new DiagnosticsTagSupport(), false));
         textDocumentClientCapabilities.setCodeAction(new CodeActionCapabilities(false));
-        textDocumentClientCapabilities.setCompletion(new CompletionCapabilities(new CompletionItemCapabilities(true)));
+        textDocumentClientCapabilities.setCompletion(new CompletionCapabilities(completionItemCapabilities));
         textDocumentClientCapabilities.setDefinition(new DefinitionCapabilities( false, false));
         textDocumentClientCapabilities.setDocumentHighlight(new DocumentHighlightCapabilities(false));
         textDocumentClientCapabilities.setFormatting(new FormattingCapabilities(false));
@@ -85,7 +99,7 @@ public class DefaultLanguageClient implements LanguageClient {
         textDocumentClientCapabilities.setOnTypeFormatting(new OnTypeFormattingCapabilities(false));
         textDocumentClientCapabilities.setRangeFormatting(new RangeFormattingCapabilities(false));
         textDocumentClientCapabilities.setReferences(new ReferencesCapabilities(false));
-        textDocumentClientCapabilities.setRename(new RenameCapabilities(false));
+        textDocumentClientCapabilities.setRename(new RenameCapabilities(true, false));
         textDocumentClientCapabilities.setSemanticHighlightingCapabilities(new SemanticHighlightingCapabilities(false));
         textDocumentClientCapabilities.setSignatureHelp(new SignatureHelpCapabilities(false));
         textDocumentClientCapabilities.setSynchronization(new SynchronizationCapabilities(true, true, true));
@@ -101,8 +115,11 @@ public class DefaultLanguageClient implements LanguageClient {
 
     @Override
     public CompletableFuture<ApplyWorkspaceEditResponse> applyEdit(ApplyWorkspaceEditParams params) {
-        boolean response = WorkspaceEditHandler.applyEdit(params.getEdit(), "LSP edits");
-        return CompletableFuture.supplyAsync(() -> new ApplyWorkspaceEditResponse(response));
+        if (!context.isActive()) {
+            return CompletableFuture.completedFuture(new ApplyWorkspaceEditResponse(false));
+        }
+        return WorkspaceEditHandler.applyEditAsync(params.getEdit(), "LSP edits")
+                .thenApply(ApplyWorkspaceEditResponse::new);
     }
 
     @Override
@@ -112,7 +129,7 @@ public class DefaultLanguageClient implements LanguageClient {
 
     @Override
     public CompletableFuture<List<WorkspaceFolder>> workspaceFolders() {
-        List<WorkspaceFolder> folders = ServiceManager.getService(IntellijLanguageClient.class).getWorkspaceFolderList(context.getProject());
+        List<WorkspaceFolder> folders = ServiceManager.getService(IntellijLanguageClient.class).getWorkspaceFolderList(context.getProjects());
         return CompletableFuture.completedFuture(folders.isEmpty() ? null : folders);
     }
 
@@ -122,7 +139,9 @@ public class DefaultLanguageClient implements LanguageClient {
             String id = r.getId();
             Optional<DynamicRegistrationMethods> method = DynamicRegistrationMethods.forName(r.getMethod());
             method.ifPresent(dynamicRegistrationMethods -> registrations.put(id, dynamicRegistrationMethods));
-
+            if (method.orElse(null) == DynamicRegistrationMethods.DID_CHANGE_WATCHED_FILES) {
+                registerFileWatchers(id, r.getRegisterOptions());
+            }
         }));
     }
 
@@ -139,12 +158,56 @@ public class DefaultLanguageClient implements LanguageClient {
                     inverted.put(entry.getValue(), entry.getKey());
                 }
                 if (method.isPresent() && inverted.containsKey(method.get())) {
-                    registrations.remove(inverted.get(method.get()));
+                    id = inverted.get(method.get());
+                    registrations.remove(id);
                 }
             }
+            if (fileWatchers.remove(id) != null) {
+                updateFileWatcherMatcher();
+            }
         }));
     }
 
+    /**
+     * Returns the given file events which match the file system watchers registered by the server, or all of them if
+     * the server has not registered any watchers.
+     */
+    @NotNull
+    public List<FileEvent> filterWatchedFiles(@NotNull List<FileEvent> changes) {
+        FileWatcherMatcher matcher = fileWatcherMatcher;
+        if (matcher == null) {
+            return changes;
+        }
+        return changes.stream().filter(matcher::matches).collect(Collectors.toList());
+    }
+
+    private void registerFileWatchers(String id, Object options) {
+        DidChangeWatchedFilesRegistrationOptions watchOptions;
+        if (options instanceof DidChangeWatchedFilesRegistrationOptions) {
+            watchOptions = (DidChangeWatchedFilesRegistrationOptions) options;
+        } else if (options instanceof JsonElement) {
+            // The options are not typed by the json-rpc layer, as they depend on the method.
+            try {
+                watchOptions = new Gson().fromJson((JsonElement) options, DidChangeWatchedFilesRegistrationOptions.class);
+            } catch (JsonParseException e) {
+                LOG.warn("Invalid file watcher registration options: " + options, e);
+                return;
+            }
+        } else {
+            return;
+        }
+        if (watchOptions != null && watchOptions.getWatchers() != null) {
+            fileWatchers.put(id, watchOptions.getWatchers());
+            updateFileWatcherMatcher();
+        }
+    }
+
+    private void updateFileWatcherMatcher() {
+        List<FileSystemWatcher> watchers = new ArrayList<>();
+        fileWatchers.values().forEach(watchers::addAll);
+        fileWatcherMatcher = watchers.isEmpty() ? null : new FileWatcherMatcher(watchers);
+    }
+
     @Override
     public void telemetryEvent(Object o) {
         LOG.info(o.toString());
@@ -153,6 +216,9 @@ public class DefaultLanguageClient implements LanguageClient {
 
     @Override
     public void publishDiagnostics(PublishDiagnosticsParams publishDiagnosticsParams) {
+        if (!context.isActive()) {
+            return;
+        }
         String uri = FileUtils.sanitizeURI(publishDiagnosticsParams.getUri());
         List<Diagnostic> diagnostics = publishDiagnosticsParams.getDiagnostics();
         EditorEventManager manager = EditorEventManagerBase.forUri(uri);
@@ -165,6 +231,10 @@ public class DefaultLanguageClient implements LanguageClient {
     public void showMessage(MessageParams messageParams) {
         String title = "Language Server message";
         String message = messageParams.getMessage();
+        if (!context.isActive()) {
+            LOG.info(message);
+            return;
+        }
 
         if (isModal) {
             ApplicationUtils.invokeLater(() -> {
@@ -196,6 +266,10 @@ public class DefaultLanguageClient implements LanguageClient {
 
     @Override
     public CompletableFuture<MessageActionItem> showMessageRequest(ShowMessageRequestParams showMessageRequestParams) {
+        if (!context.isActive()) {
+            LOG.info(showMessageRequestParams.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
         List<MessageActionItem> actions = showMessageRequestParams.getActions();
         String title = "Language Server " + showMessageRequestParams.getType().toString();
         String message = showMessageRequestParams.getMessage();
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.client;
+
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.FileSystemWatcher;
+import org.eclipse.lsp4j.WatchKind;
+import org.jetbrains.annotations.NotNull;
+import org.wso2.lsp4intellij.utils.GlobPattern;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.regex.Pattern;
+
+/**
+ * Matches file events against the file system watchers registered by a language server. The globs of all the
+ * watchers are compiled into a single expression per watch kind, hence an event is matched in one pass regardless of
+ * the number of registered watchers.
+ */
+public class FileWatcherMatcher {
+
+    // Indexed by the FileChangeType value - 1 (created, changed, deleted).
+    private static final int[] WATCH_KINDS = {WatchKind.Create, WatchKind.Change, WatchKind.Delete};
+    private static final int ALL_KINDS = WatchKind.Create | WatchKind.Change | WatchKind.Delete;
+
+    private final Pattern[] patterns = new Pattern[WATCH_KINDS.length];
+
+    public FileWatcherMatcher(@NotNull Collection<FileSystemWatcher> watchers) {
+        for (int i = 0; i < WATCH_KINDS.length; i++) {
+            StringJoiner regex = new StringJoiner("|");
+            for (FileSystemWatcher watcher : watchers) {
+                int kind = watcher.getKind() != null ? watcher.getKind() : ALL_KINDS;
+                if (watcher.getGlobPattern() != null && (kind & WATCH_KINDS[i]) != 0) {
+                    regex.add("(?:" + GlobPattern.toRegex(watcher.getGlobPattern()) + ")");
+                }
+            }
+            patterns[i] = regex.length() > 0 ? Pattern.compile(regex.toString()) : null;
+        }
+    }
+
+    /**
+     * Returns true if the given event matches any of the watchers.
+     */
+    public boolean matches(@NotNull FileEvent event) {
+        Pattern pattern = patterns[event.getType().getValue() - 1];
+        return pattern != null && pattern.matcher(toPath(event.getUri())).matches();
+    }
+
+    private static String toPath(String uri) {
+        try {
+            String path = new URI(uri).getPath();
+            return path != null ? path : uri;
+        } catch (URISyntaxException e) {
+            return uri;
+        }
+    }
+}
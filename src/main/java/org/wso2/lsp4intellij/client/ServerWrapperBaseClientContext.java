@@ -22,14 +22,24 @@ import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager
 import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 
+import java.util.List;
+
 public class ServerWrapperBaseClientContext implements ClientContext {
 
-    private final LanguageServerWrapper wrapper;
+    private volatile LanguageServerWrapper wrapper;
 
     public ServerWrapperBaseClientContext(@NotNull LanguageServerWrapper wrapper) {
         this.wrapper = wrapper;
     }
 
+    /**
+     * Hands the context over to another wrapper, which takes over the server of the current one (e.g. a shared server
+     * whose project was closed).
+     */
+    public void setWrapper(@NotNull LanguageServerWrapper wrapper) {
+        this.wrapper = wrapper;
+    }
+
     @Override
     public EditorEventManager getEditorEventManagerFor(@NotNull String documentUri) {
         return wrapper.getEditorManagerFor(documentUri);
@@ -41,6 +51,12 @@ public class ServerWrapperBaseClientContext implements ClientContext {
         return wrapper.getProject();
     }
 
+    @NotNull
+    @Override
+    public List<Project> getProjects() {
+        return wrapper.getProjects();
+    }
+
     @Nullable
     @Override
     public RequestManager getRequestManager() {
@@ -15,7 +15,9 @@
  */
 package org.wso2.lsp4intellij.client.connection;
 
+import com.intellij.execution.process.OSProcessUtil;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -23,6 +25,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -98,6 +103,25 @@ public class ProcessStreamConnectionProvider implements StreamConnectionProvider
         }
     }
 
+    @Override
+    public long getMemoryUsage() {
+        if (process == null || !process.isAlive() || !SystemInfo.isLinux) {
+            return -1;
+        }
+        Path status = Paths.get("/proc", String.valueOf(OSProcessUtil.getProcessID(process)), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    // e.g. "VmRSS:    123456 kB"
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.debug(e);
+        }
+        return -1;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ProcessStreamConnectionProvider) {
@@ -29,4 +29,11 @@ public interface StreamConnectionProvider {
 
     void stop();
 
+    /**
+     * @return The resident memory of the server in bytes, or -1 if it can not be measured
+     */
+    default long getMemoryUsage() {
+        return -1;
+    }
+
 }
@@ -29,6 +29,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.wso2.lsp4intellij.IntellijLanguageClient;
 import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
+import org.wso2.lsp4intellij.requests.HoverHandler;
 import org.wso2.lsp4intellij.requests.Timeouts;
 import org.wso2.lsp4intellij.utils.ApplicationUtils;
 import org.wso2.lsp4intellij.utils.GUIUtils;
@@ -242,6 +243,15 @@ public class LSPServerStatusWidget implements StatusBarWidget {
                     message.append("0/0 (0%)<br>");
                 }
             });
+            HoverHandler.RenderStatistics renderStatistics = wrapper.getRenderStatistics();
+            message.append("Markdown rendering<br>");
+            message.append(renderStatistics.getRenderCount()).append(" rendered, ")
+                    .append(renderStatistics.getCacheHitCount()).append(" cached, ")
+                    .append(String.format("%.2f", renderStatistics.getAverageRenderMillis())).append(" ms avg");
+            if (renderStatistics.getAverageAllocatedBytes() >= 0) {
+                message.append(", ").append(renderStatistics.getAverageAllocatedBytes() / 1024).append(" KB avg");
+            }
+            message.append("<br>");
             message.append("</html>");
 
             return message.toString();
@@ -22,6 +22,7 @@ import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.eclipse.lsp4j.services.TextDocumentService;
 import org.eclipse.lsp4j.services.WorkspaceService;
+import org.wso2.lsp4intellij.client.DefaultLanguageClient;
 import org.wso2.lsp4intellij.client.languageserver.ServerStatus;
 import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
 
@@ -212,9 +213,18 @@ public class DefaultRequestManager implements RequestManager {
 
     @Override
     public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
-        // FIXME: [ms] only send notifications to the server for previously requested files
         if (checkStatus()) {
             try {
+                // Only the files watched by the server are sent, unless the server has not registered any watchers.
+                if (client instanceof DefaultLanguageClient) {
+                    List<FileEvent> changes = ((DefaultLanguageClient) client).filterWatchedFiles(params.getChanges());
+                    if (changes.isEmpty()) {
+                        return;
+                    }
+                    if (changes.size() != params.getChanges().size()) {
+                        params = new DidChangeWatchedFilesParams(changes);
+                    }
+                }
                 workspaceService.didChangeWatchedFiles(params);
             } catch (Exception e) {
                 crashed(e);
@@ -222,6 +232,17 @@ public class DefaultRequestManager implements RequestManager {
         }
     }
 
+    @Override
+    public void didChangeWorkspaceFolders(DidChangeWorkspaceFoldersParams params) {
+        if (checkStatus()) {
+            try {
+                workspaceService.didChangeWorkspaceFolders(params);
+            } catch (Exception e) {
+                crashed(e);
+            }
+        }
+    }
+
     public CompletableFuture<List<? extends SymbolInformation>> symbol(WorkspaceSymbolParams params) {
         if (checkStatus()) {
             try {
@@ -610,17 +631,33 @@ public class DefaultRequestManager implements RequestManager {
 
     @Override
     public CompletableFuture<WorkspaceEdit> rename(RenameParams params) {
-        // FIXME: rename request
-        //        if (checkStatus()) {
-        //            try {
-        //                return (checkProvider((Either<Boolean, StaticRegistrationOptions>)serverCapabilities.getRenameProvider())) ?
-        //                        textDocumentService.rename(params) :
-        //                        null;
-        //            } catch (Exception e) {
-        //                crashed(e);
-        //                return null;
-        //            }
-        //        }
+        if (checkStatus()) {
+            try {
+                final Either<Boolean, RenameOptions> renameProvider = serverCapabilities.getRenameProvider();
+                if (renameProvider != null && (renameProvider.isLeft() ? renameProvider.getLeft() == Boolean.TRUE :
+                        renameProvider.getRight() != null)) {
+                    return textDocumentService.rename(params);
+                }
+            } catch (Exception e) {
+                crashed(e);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<Either<Range, PrepareRenameResult>> prepareRename(PrepareRenameParams params) {
+        if (checkStatus()) {
+            try {
+                final Either<Boolean, RenameOptions> renameProvider = serverCapabilities.getRenameProvider();
+                if (renameProvider != null && renameProvider.isRight()
+                        && renameProvider.getRight().getPrepareProvider() == Boolean.TRUE) {
+                    return textDocumentService.prepareRename(params);
+                }
+            } catch (Exception e) {
+                crashed(e);
+            }
+        }
         return null;
     }
 
@@ -86,6 +86,9 @@ public interface RequestManager extends LanguageClient, TextDocumentService, Wor
     @Override
     void didChangeWatchedFiles(DidChangeWatchedFilesParams params);
 
+    @Override
+    void didChangeWorkspaceFolders(DidChangeWorkspaceFoldersParams params);
+
     @Override
     CompletableFuture<List<? extends SymbolInformation>> symbol(WorkspaceSymbolParams params);
 
@@ -175,6 +178,9 @@ public interface RequestManager extends LanguageClient, TextDocumentService, Wor
     @Override
     CompletableFuture<WorkspaceEdit> rename(RenameParams params);
 
+    @Override
+    CompletableFuture<Either<Range, PrepareRenameResult>> prepareRename(PrepareRenameParams params);
+
     @Override
     CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> implementation(ImplementationParams params);
 
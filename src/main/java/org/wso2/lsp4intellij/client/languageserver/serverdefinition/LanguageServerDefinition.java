@@ -37,6 +37,9 @@ public class LanguageServerDefinition {
     public String ext;
     protected Map<String, String> languageIds = Collections.emptyMap();
     private Map<String, StreamConnectionProvider> streamConnectionProviders = new ConcurrentHashMap<>();
+    private volatile boolean shared = false;
+    private volatile int warmSpares = 0;
+    private volatile long spareMemoryBudget = 0;
     public static final String SPLIT_CHAR = ",";
 
     /**
@@ -71,6 +74,95 @@ public class LanguageServerDefinition {
         }
     }
 
+    /**
+     * Starts an additional Language server for the given directory, e.g. a warm spare. The server is not tracked by
+     * this definition until it is adopted.
+     *
+     * @param workingDir The root directory
+     * @return The started stream connection provider
+     * @throws IOException if the stream connection provider is crashed
+     */
+    public StreamConnectionProvider startSpare(String workingDir) throws IOException {
+        StreamConnectionProvider streamConnectionProvider = createConnectionProvider(workingDir);
+        streamConnectionProvider.start();
+        return streamConnectionProvider;
+    }
+
+    /**
+     * Makes the given server (started by {@link #startSpare(String)}) the Language server of the given working
+     * directory, hence it is stopped by {@link #stop(String)}.
+     *
+     * @param workingDir               The root directory
+     * @param streamConnectionProvider The stream connection provider of the server
+     */
+    public void adopt(String workingDir, StreamConnectionProvider streamConnectionProvider) {
+        StreamConnectionProvider previous = streamConnectionProviders.put(workingDir, streamConnectionProvider);
+        if (previous != null && previous != streamConnectionProvider) {
+            previous.stop();
+        }
+    }
+
+    /**
+     * Makes the Language server of a working directory the one of another working directory, e.g. when a shared
+     * server is handed over to the project of another working directory.
+     *
+     * @param fromWorkingDir The current root directory of the server
+     * @param toWorkingDir   The new root directory of the server
+     */
+    public void move(String fromWorkingDir, String toWorkingDir) {
+        StreamConnectionProvider streamConnectionProvider = streamConnectionProviders.remove(fromWorkingDir);
+        if (streamConnectionProvider != null) {
+            adopt(toWorkingDir, streamConnectionProvider);
+        }
+    }
+
+    /**
+     * @return True if a single server process is shared by all the projects using this definition
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Shares a single server process among all the projects using this definition, instead of starting one process
+     * per project. The projects are added to (and removed from) the running server as workspace folders, hence the
+     * server must support workspace/didChangeWorkspaceFolders. Otherwise every project gets its own process, as if the
+     * definition was not shared. Disabled by default.
+     *
+     * @param shared true to share the server process.
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * @return The number of warm spare servers kept per project
+     */
+    public int getWarmSpares() {
+        return warmSpares;
+    }
+
+    /**
+     * @return The maximum total memory of the idle spare servers of a project in bytes, or 0 if unlimited
+     */
+    public long getSpareMemoryBudget() {
+        return spareMemoryBudget;
+    }
+
+    /**
+     * Keeps the given number of spare servers started and initialized in the background for each project, so that a
+     * crashed or restarted server is replaced at once instead of waiting for a cold start. Spares are dropped (newest
+     * first) while the total resident memory of the idle spares exceeds the given budget, which is only measured for
+     * process based servers on Linux. Disabled by default.
+     *
+     * @param count            The number of spare servers per project, or 0 to disable
+     * @param idleMemoryBudget The maximum total memory of the idle spares of a project in bytes, or 0 for no limit
+     */
+    public void setWarmSpares(int count, long idleMemoryBudget) {
+        this.warmSpares = Math.max(0, count);
+        this.spareMemoryBudget = Math.max(0, idleMemoryBudget);
+    }
+
     @Override
     public String toString() {
         return "ServerDefinition for " + ext;
@@ -18,6 +18,7 @@ package org.wso2.lsp4intellij.client.languageserver.wrapper;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationType;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditor;
@@ -41,6 +42,8 @@ import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.wso2.lsp4intellij.IntellijLanguageClient;
+import org.wso2.lsp4intellij.client.ClientContext;
 import org.wso2.lsp4intellij.client.DefaultLanguageClient;
 import org.wso2.lsp4intellij.client.ServerWrapperBaseClientContext;
 import org.wso2.lsp4intellij.client.languageserver.LSPServerStatusWidget;
@@ -55,6 +58,7 @@ import org.wso2.lsp4intellij.listeners.DocumentListenerImpl;
 import org.wso2.lsp4intellij.listeners.EditorMouseListenerImpl;
 import org.wso2.lsp4intellij.listeners.EditorMouseMotionListenerImpl;
 import org.wso2.lsp4intellij.listeners.LSPCaretListenerImpl;
+import org.wso2.lsp4intellij.requests.HoverHandler;
 import org.wso2.lsp4intellij.requests.Timeouts;
 import org.wso2.lsp4intellij.utils.FileUtils;
 import org.wso2.lsp4intellij.utils.LSPException;
@@ -89,6 +93,8 @@ public class LanguageServerWrapper {
     private final LSPServerStatusWidget statusWidget;
     private LanguageServer languageServer;
     private DefaultLanguageClient client;
+    private ServerWrapperBaseClientContext clientContext;
+    private MessageHandler messageHandler;
     private RequestManager requestManager;
     private InitializeResult initializeResult = null;
     private Future<?> launcherFuture;
@@ -99,6 +105,16 @@ public class LanguageServerWrapper {
     private volatile ServerStatus status = STOPPED;
     private static final Map<Pair<String, String>, LanguageServerWrapper> uriToLanguageServerWrapper =
             new ConcurrentHashMap<>();
+    // The wrapper owning the shared server process of each shared definition, completed once the process is started
+    // (with null if it could not be started or shared).
+    private static final Map<LanguageServerDefinition, CompletableFuture<LanguageServerWrapper>> sharedServers =
+            new ConcurrentHashMap<>();
+    // The wrapper owning the shared server process this wrapper is attached to, if any.
+    private volatile LanguageServerWrapper sharedOwner;
+    // Wrappers of the other projects, attached to the shared server process owned by this wrapper.
+    private final Set<LanguageServerWrapper> attachedWrappers = ConcurrentHashMap.newKeySet();
+    private final SpareServerPool spares = new SpareServerPool(this);
+    private final HoverHandler.RenderStatistics renderStatistics = new HoverHandler.RenderStatistics();
     private static final Logger LOG = Logger.getInstance(LanguageServerWrapper.class);
 
     public LanguageServerWrapper(@NotNull LanguageServerDefinition serverDefinition, @NotNull Project project) {
@@ -156,6 +172,27 @@ public class LanguageServerWrapper {
                 .orElse(false);
     }
 
+    /**
+     * @return if the server supports textDocument/rename
+     */
+    public boolean isRenameProvider() {
+        return Optional.ofNullable(getServerCapabilities())
+                .map(ServerCapabilities::getRenameProvider)
+                .map(provider -> provider.isLeft() ? Boolean.TRUE.equals(provider.getLeft()) : provider.getRight() != null)
+                .orElse(false);
+    }
+
+    /**
+     * @return if the server validates renames through textDocument/prepareRename
+     */
+    public boolean isPrepareRenameProvider() {
+        return Optional.ofNullable(getServerCapabilities())
+                .map(ServerCapabilities::getRenameProvider)
+                .map(Either::getRight)
+                .map(RenameOptions::getPrepareProvider)
+                .orElse(false);
+    }
+
     /**
      * Warning: this is a long running operation
      *
@@ -185,7 +222,24 @@ public class LanguageServerWrapper {
      * @return the EditorEventManager (or null)
      */
     public EditorEventManager getEditorManagerFor(String uri) {
-        return connectedEditors.get(uri);
+        EditorEventManager manager = connectedEditors.get(uri);
+        if (manager == null) {
+            // The documents of the projects attached to a shared server are handled by their own wrappers.
+            for (LanguageServerWrapper wrapper : attachedWrappers) {
+                manager = wrapper.connectedEditors.get(uri);
+                if (manager != null) {
+                    break;
+                }
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * @return The statistics of the markdown renderings done for the hovers of this wrapper
+     */
+    public HoverHandler.RenderStatistics getRenderStatistics() {
+        return renderStatistics;
     }
 
     /**
@@ -303,6 +357,24 @@ public class LanguageServerWrapper {
      * Only if the exit flag is true, particular server instance will exit.
      */
     public void stop(boolean exit) {
+        stop(exit, false);
+    }
+
+    /**
+     * @param keepSpares true if the server is about to be restarted, hence the warm spares are kept for the restart
+     */
+    private void stop(boolean exit, boolean keepSpares) {
+        if (!keepSpares) {
+            spares.clear();
+        }
+        if (sharedOwner != null) {
+            // Only the project is removed from the shared server.
+            detach(false);
+            return;
+        }
+        for (LanguageServerWrapper wrapper : attachedWrappers) {
+            wrapper.detach(true);
+        }
         try {
             if (initializeFuture != null) {
                 if(!initializeFuture.isDone()) {
@@ -336,6 +408,7 @@ public class LanguageServerWrapper {
             }
             languageServer = null;
             setStatus(STOPPED);
+            unshare();
         }
         LOG.info("Wrapper for "+ serverDefinition.ext +" stopped.");
     }
@@ -363,82 +436,366 @@ public class LanguageServerWrapper {
      */
     synchronized public void start() {
         if (status == STOPPED && !alreadyShownCrash && !alreadyShownTimeout) {
-            setStatus(STARTING);
+            if (!serverDefinition.isShared()) {
+                startServer();
+                return;
+            }
+            // The first project registers the shared server of the definition, hence projects opened at the same time
+            // do not start a process each. The others wait for it to be initialized, without holding a lock.
+            CompletableFuture<LanguageServerWrapper> started = new CompletableFuture<>();
+            CompletableFuture<LanguageServerWrapper> shared = sharedServers.putIfAbsent(serverDefinition, started);
+            if (shared != null) {
+                LanguageServerWrapper owner = awaitSharedServer(shared);
+                if (owner != null && owner != this && attach(owner)) {
+                    return;
+                }
+                // The shared server could not be started or was stopped in the meantime, hence it is started anew.
+                if (!sharedServers.replace(serverDefinition, shared, started)) {
+                    startServer();
+                    return;
+                }
+            }
             try {
-                Pair<InputStream, OutputStream> streams = serverDefinition.start(projectRootPath);
-                InputStream inputStream = streams.getKey();
-                OutputStream outputStream = streams.getValue();
-                ExecutorService executorService = Executors.newCachedThreadPool();
-                MessageHandler messageHandler = new MessageHandler(serverDefinition.getServerListener(), () -> getStatus() != STOPPED);
-                if (extManager != null && extManager.getExtendedServerInterface() != null) {
-                    Class<? extends LanguageServer> remoteServerInterFace = extManager.getExtendedServerInterface();
-                    client = extManager.getExtendedClientFor(new ServerWrapperBaseClientContext(this));
-
-                    Launcher<? extends LanguageServer> launcher = Launcher
-                            .createLauncher(client, remoteServerInterFace, inputStream, outputStream, executorService,
-                                    messageHandler);
-                    languageServer = launcher.getRemoteProxy();
-                    launcherFuture = launcher.startListening();
-                } else {
-                    client = new DefaultLanguageClient(new ServerWrapperBaseClientContext(this));
-                    Launcher<LanguageServer> launcher = Launcher
-                            .createLauncher(client, LanguageServer.class, inputStream, outputStream, executorService,
-                                    messageHandler);
-                    languageServer = launcher.getRemoteProxy();
-                    launcherFuture = launcher.startListening();
+                startServer();
+                if (status == INITIALIZED) {
+                    if (isWorkspaceFoldersChangeProvider()) {
+                        started.complete(this);
+                    } else {
+                        LOG.warn(serverDefinition + " does not support workspace folder changes, hence it can not be "
+                                + "shared among projects.");
+                    }
+                }
+            } finally {
+                if (!started.isDone()) {
+                    sharedServers.remove(serverDefinition, started);
+                    started.complete(null);
                 }
-                messageHandler.setLanguageServerWrapper(this);
+            }
+        }
+    }
 
-                InitializeParams initParams = client.getInitParams(projectRootPath);
-                initializeFuture = languageServer.initialize(initParams);
-                initializeFuture.thenRun(() ->{
-                    synchronized (editorsWaitingToConnect) {
-                        for (Editor ed : editorsWaitingToConnect) {
-                            connect(ed);
-                        }
-                    }
-                });
+    /**
+     * Waits until the shared server registered by another project is initialized.
+     *
+     * @return The wrapper owning the shared server, or null if it could not be started
+     */
+    private static LanguageServerWrapper awaitSharedServer(CompletableFuture<LanguageServerWrapper> shared) {
+        try {
+            return shared.get(getTimeout(INIT), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn(e);
+            return null;
+        }
+    }
 
-                initializeResult = initializeFuture.get(( initializeFuture.isDone() ? 0 : getTimeout(INIT)), TimeUnit.MILLISECONDS);
-                notifySuccess(INIT);
+    /**
+     * Removes the shared server of the definition, if owned by this wrapper.
+     */
+    private void unshare() {
+        sharedServers.computeIfPresent(serverDefinition, (definition, shared) ->
+                shared.getNow(null) == this ? null : shared);
+    }
 
-                LOG.info("Got initializeResult for " + serverDefinition + " ; " + projectRootPath);
-                if (extManager != null) {
-                    requestManager = extManager.getExtendedRequestManagerFor(this, languageServer, client, initializeResult.getCapabilities());
-                    if (requestManager == null) {
-                        requestManager = new DefaultRequestManager(this, languageServer, client, initializeResult.getCapabilities());
+    private void startServer() {
+        SpareServerPool.SpareServer spare = spares.take();
+        if (spare != null) {
+            promote(spare);
+            return;
+        }
+        setStatus(STARTING);
+        try {
+            Pair<InputStream, OutputStream> streams = serverDefinition.start(projectRootPath);
+            InputStream inputStream = streams.getKey();
+            OutputStream outputStream = streams.getValue();
+            ExecutorService executorService = Executors.newCachedThreadPool();
+            messageHandler = new MessageHandler(serverDefinition.getServerListener());
+            clientContext = new ServerWrapperBaseClientContext(this);
+            client = createClient(clientContext);
+            Launcher<? extends LanguageServer> launcher = Launcher
+                    .createLauncher(client, getServerInterface(), inputStream, outputStream, executorService,
+                            messageHandler);
+            languageServer = launcher.getRemoteProxy();
+            launcherFuture = launcher.startListening();
+            messageHandler.setLanguageServerWrapper(this);
+
+            InitializeParams initParams = client.getInitParams(projectRootPath);
+            initializeFuture = languageServer.initialize(initParams);
+            initializeFuture.thenRun(() ->{
+                synchronized (editorsWaitingToConnect) {
+                    for (Editor ed : editorsWaitingToConnect) {
+                        connect(ed);
                     }
-                } else {
-                    requestManager = new DefaultRequestManager(this, languageServer, client, initializeResult.getCapabilities());
                 }
-                setStatus(STARTED);
-                // send the initialized message since some language servers depends on this message
-                requestManager.initialized(new InitializedParams());
-                setStatus(INITIALIZED);
+            });
 
-            } catch (LSPException | IOException e) {
-                LOG.warn(e);
-                invokeLater(() -> new Notification("LSP","LSP Connection Error", String.format("Can't start server due to %s", e.getMessage()) , NotificationType.WARNING).notify(project));
-                setStatus(STOPPED);
-            }catch (TimeoutException e) {
-                notifyFailure(INIT);
-                String msg = String.format("%s \n is not initialized after %d seconds",
-                        serverDefinition.toString(), getTimeout(INIT) / 1000);
-                LOG.info(msg, e);
-                invokeLater(() -> {
-                    if (!alreadyShownTimeout) {
-                        invokeLater(() -> new Notification("LSP","LSP Initialization Error", msg , NotificationType.WARNING).notify(project));
-                        alreadyShownTimeout = true;
-                    }
-                });
-                stop(false);
-                LOG.info("Capabilities are null for " + serverDefinition);
-            } catch (Exception e) {
-                LOG.warn(e);
-                stop(false);
-                LOG.warn("Capabilities are null for " + serverDefinition);
+            initializeResult = initializeFuture.get(( initializeFuture.isDone() ? 0 : getTimeout(INIT)), TimeUnit.MILLISECONDS);
+            notifySuccess(INIT);
+
+            LOG.info("Got initializeResult for " + serverDefinition + " ; " + projectRootPath);
+            requestManager = createRequestManager();
+            setStatus(STARTED);
+            // send the initialized message since some language servers depends on this message
+            requestManager.initialized(new InitializedParams());
+            setStatus(INITIALIZED);
+            spares.replenish();
+
+        } catch (LSPException | IOException e) {
+            LOG.warn(e);
+            invokeLater(() -> new Notification("LSP","LSP Connection Error", String.format("Can't start server due to %s", e.getMessage()) , NotificationType.WARNING).notify(project));
+            setStatus(STOPPED);
+        }catch (TimeoutException e) {
+            notifyFailure(INIT);
+            String msg = String.format("%s \n is not initialized after %d seconds",
+                    serverDefinition.toString(), getTimeout(INIT) / 1000);
+            LOG.info(msg, e);
+            invokeLater(() -> {
+                if (!alreadyShownTimeout) {
+                    invokeLater(() -> new Notification("LSP","LSP Initialization Error", msg , NotificationType.WARNING).notify(project));
+                    alreadyShownTimeout = true;
+                }
+            });
+            stop(false);
+            LOG.info("Capabilities are null for " + serverDefinition);
+        } catch (Exception e) {
+            LOG.warn(e);
+            stop(false);
+            LOG.warn("Capabilities are null for " + serverDefinition);
+        }
+    }
+
+    /**
+     * Makes the given warm spare the active server, instead of starting a new one.
+     */
+    private void promote(SpareServerPool.SpareServer spare) {
+        setStatus(STARTING);
+        spare.promote();
+        serverDefinition.adopt(projectRootPath, spare.provider);
+        client = spare.client;
+        clientContext = spare.getContext();
+        messageHandler = spare.messageHandler;
+        languageServer = spare.server;
+        launcherFuture = spare.launcherFuture;
+        initializeResult = spare.initializeResult;
+        initializeFuture = CompletableFuture.completedFuture(initializeResult);
+        serverDefinition.getServerListener().initialize(languageServer, initializeResult);
+        requestManager = createRequestManager();
+        setStatus(STARTED);
+        setStatus(INITIALIZED);
+        LOG.info("Promoted a spare server for " + serverDefinition + " ; " + projectRootPath);
+
+        List<Editor> waiting;
+        synchronized (editorsWaitingToConnect) {
+            waiting = new ArrayList<>(editorsWaitingToConnect);
+        }
+        waiting.forEach(this::connect);
+        spares.replenish();
+    }
+
+    DefaultLanguageClient createClient(ClientContext context) {
+        if (extManager != null && extManager.getExtendedServerInterface() != null) {
+            return extManager.getExtendedClientFor(context);
+        }
+        return new DefaultLanguageClient(context);
+    }
+
+    Class<? extends LanguageServer> getServerInterface() {
+        if (extManager != null && extManager.getExtendedServerInterface() != null) {
+            return extManager.getExtendedServerInterface();
+        }
+        return LanguageServer.class;
+    }
+
+    private RequestManager createRequestManager() {
+        RequestManager manager = null;
+        if (extManager != null) {
+            manager = extManager.getExtendedRequestManagerFor(this, languageServer, client, initializeResult.getCapabilities());
+        }
+        if (manager == null) {
+            manager = new DefaultRequestManager(this, languageServer, client, initializeResult.getCapabilities());
+        }
+        return manager;
+    }
+
+    /**
+     * Attaches the project of this wrapper to the shared server process of the given wrapper, as new workspace
+     * folders.
+     *
+     * @return false if the shared server is not running, or does not support workspace folder changes
+     */
+    private boolean attach(LanguageServerWrapper owner) {
+        if (owner.getStatus() != INITIALIZED || !owner.isWorkspaceFoldersChangeProvider()) {
+            return false;
+        }
+        setStatus(STARTING);
+        languageServer = owner.languageServer;
+        client = owner.client;
+        requestManager = owner.requestManager;
+        initializeResult = owner.initializeResult;
+        initializeFuture = owner.initializeFuture;
+        launcherFuture = owner.launcherFuture;
+        sharedOwner = owner;
+        owner.attachedWrappers.add(this);
+        changeWorkspaceFolders(true);
+        setStatus(STARTED);
+        setStatus(INITIALIZED);
+        LOG.info("Attached " + projectRootPath + " to the shared server of " + owner.projectRootPath);
+
+        List<Editor> waiting;
+        synchronized (editorsWaitingToConnect) {
+            waiting = new ArrayList<>(editorsWaitingToConnect);
+        }
+        waiting.forEach(this::connect);
+        return true;
+    }
+
+    /**
+     * Detaches the project of this wrapper from the shared server process it is attached to.
+     *
+     * @param ownerStopping true if the shared server process is being stopped
+     */
+    private void detach(boolean ownerStopping) {
+        LanguageServerWrapper owner = sharedOwner;
+        if (owner == null) {
+            return;
+        }
+        for (EditorEventManager manager : connectedEditors.values()) {
+            disconnect(manager.editor);
+        }
+        if (!ownerStopping) {
+            changeWorkspaceFolders(false);
+        }
+        sharedOwner = null;
+        initializeFuture = null;
+        initializeResult = null;
+        languageServer = null;
+        launcherFuture = null;
+        setStatus(STOPPED);
+
+        synchronized (owner.attachedWrappers) {
+            owner.attachedWrappers.remove(this);
+        }
+    }
+
+    /**
+     * Stops the wrapper when its project is closed. A shared server process keeps running (without the folders of
+     * this project) as long as other projects are attached to it, in which case it is handed over to one of them.
+     */
+    public void release() {
+        LanguageServerWrapper successor = null;
+        if (sharedOwner == null) {
+            synchronized (attachedWrappers) {
+                Iterator<LanguageServerWrapper> attached = attachedWrappers.iterator();
+                if (attached.hasNext()) {
+                    successor = attached.next();
+                }
             }
         }
+        if (successor == null) {
+            stop(true);
+            return;
+        }
+        spares.clear();
+        for (EditorEventManager manager : new ArrayList<>(connectedEditors.values())) {
+            disconnect(manager.editor);
+        }
+        changeWorkspaceFolders(false);
+        List<LanguageServerWrapper> others;
+        synchronized (attachedWrappers) {
+            others = new ArrayList<>(attachedWrappers);
+            attachedWrappers.clear();
+        }
+        others.remove(successor);
+        serverDefinition.move(projectRootPath, successor.projectRootPath);
+        messageHandler.setLanguageServerWrapper(successor);
+        clientContext.setWrapper(successor);
+        successor.takeOver(this, others);
+        sharedServers.put(serverDefinition, CompletableFuture.completedFuture(successor));
+        LOG.info("Handed the shared server of " + projectRootPath + " over to " + successor.projectRootPath);
+
+        // Nothing of the closed project is referenced by the running server from now on.
+        client = null;
+        clientContext = null;
+        messageHandler = null;
+        requestManager = null;
+        languageServer = null;
+        initializeFuture = null;
+        initializeResult = null;
+        launcherFuture = null;
+        setStatus(STOPPED);
+    }
+
+    /**
+     * Makes this wrapper the owner of the shared server it is attached to, when the project of the previous owner is
+     * closed. The editors of the projects attached to the server are connected again, as their request manager refers
+     * to the previous owner.
+     *
+     * @param previous The previous owner
+     * @param others   The wrappers of the other projects attached to the server
+     */
+    private void takeOver(LanguageServerWrapper previous, List<LanguageServerWrapper> others) {
+        sharedOwner = null;
+        clientContext = previous.clientContext;
+        messageHandler = previous.messageHandler;
+        requestManager = createRequestManager();
+        reconnectEditors();
+        for (LanguageServerWrapper wrapper : others) {
+            wrapper.sharedOwner = this;
+            wrapper.requestManager = requestManager;
+            attachedWrappers.add(wrapper);
+            wrapper.reconnectEditors();
+        }
+    }
+
+    private void reconnectEditors() {
+        Set<String> connected = new HashSet<>(connectedEditors.keySet());
+        for (EditorEventManager manager : new ArrayList<>(connectedEditors.values())) {
+            disconnect(manager.editor);
+        }
+        connected.forEach(this::connect);
+    }
+
+    /**
+     * @return The projects served by the server process of this wrapper
+     */
+    public List<Project> getProjects() {
+        List<Project> projects = new ArrayList<>();
+        projects.add(project);
+        attachedWrappers.forEach(wrapper -> projects.add(wrapper.getProject()));
+        return projects;
+    }
+
+    /**
+     * @return if the server supports workspace/didChangeWorkspaceFolders
+     */
+    public boolean isWorkspaceFoldersChangeProvider() {
+        return Optional.ofNullable(getServerCapabilities())
+                .map(ServerCapabilities::getWorkspace)
+                .map(WorkspaceServerCapabilities::getWorkspaceFolders)
+                .map(WorkspaceFoldersOptions::getChangeNotifications)
+                .map(notifications -> notifications.isRight() ? Boolean.TRUE.equals(notifications.getRight()) :
+                        notifications.getLeft() != null)
+                .orElse(false);
+    }
+
+    /**
+     * Adds the folders of the project to the server, or removes them.
+     */
+    private void changeWorkspaceFolders(boolean added) {
+        if (requestManager == null) {
+            return;
+        }
+        List<WorkspaceFolder> folders = new ArrayList<>(
+                ServiceManager.getService(IntellijLanguageClient.class).getWorkspaceFolderList(project));
+        if (folders.isEmpty()) {
+            folders.add(new WorkspaceFolder(FileUtils.pathToUri(projectRootPath), project.getName()));
+        }
+        WorkspaceFoldersChangeEvent event = added ?
+                new WorkspaceFoldersChangeEvent(folders, Collections.emptyList()) :
+                new WorkspaceFoldersChangeEvent(Collections.emptyList(), folders);
+        requestManager.didChangeWorkspaceFolders(new DidChangeWorkspaceFoldersParams(event));
     }
 
     public void logMessage(Message message) {
@@ -465,6 +822,12 @@ public class LanguageServerWrapper {
     }
 
     public void crashed(Exception e) {
+        LanguageServerWrapper owner = sharedOwner;
+        if (owner != null) {
+            // The shared server process is handled by its owner.
+            owner.crashed(e);
+            return;
+        }
         crashCount++;
         if (crashCount <= 3) {
             reconnect();
@@ -525,11 +888,18 @@ public class LanguageServerWrapper {
     private void reconnect() {
         // Need to copy by value since connected editors gets cleared during 'stop()' invocation.
         final Set<String> connected = new HashSet<>(connectedEditors.keySet());
-        stop(true);
+        // The projects attached to a shared server are reconnected as well, to the restarted process.
+        final Map<LanguageServerWrapper, Set<String>> attached = new HashMap<>();
+        attachedWrappers.forEach(wrapper -> attached.put(wrapper, new HashSet<>(wrapper.connectedEditors.keySet())));
+        stop(true, true);
         start();
         for (String uri : connected) {
             connect(uri);
         }
+        attached.forEach((wrapper, uris) -> {
+            wrapper.start();
+            uris.forEach(wrapper::connect);
+        });
     }
 
     public List<String> getConnectedFiles() {
@@ -572,6 +942,23 @@ public class LanguageServerWrapper {
         }
     }
 
+    /**
+     * Moves a connected document to a new uri, after its file was renamed or moved, without reconnecting its editor.
+     *
+     * @param oldUri     The file uri before the change
+     * @param newUri     The file uri after the change
+     * @param projectUri The project root uri
+     */
+    public void rebind(String oldUri, String newUri, String projectUri) {
+        EditorEventManager manager = connectedEditors.remove(sanitizeURI(oldUri));
+        if (manager != null) {
+            connectedEditors.put(sanitizeURI(newUri), manager);
+            uriToLanguageServerWrapper.remove(new ImmutablePair<>(sanitizeURI(oldUri), sanitizeURI(projectUri)));
+            uriToLanguageServerWrapper.put(new MutablePair<>(sanitizeURI(newUri), sanitizeURI(projectUri)), this);
+            manager.documentMoved(sanitizeURI(newUri));
+        }
+    }
+
     private void connect(String uri) {
         FileEditor[] fileEditors = FileEditorManager.getInstance(project)
                 .getAllEditors(Objects.requireNonNull(FileUtils.URIToVFS(uri)));
@@ -22,6 +22,7 @@ import org.eclipse.lsp4j.jsonrpc.messages.Message;
 import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.jetbrains.annotations.NotNull;
+import org.wso2.lsp4intellij.client.languageserver.ServerStatus;
 import org.wso2.lsp4intellij.client.languageserver.serverdefinition.ServerListener;
 
 import java.util.function.BooleanSupplier;
@@ -38,6 +39,15 @@ class MessageHandler implements Function<MessageConsumer, MessageConsumer> {
         this.isRunning = isRunning;
     }
 
+    /**
+     * Creates a handler which handles the messages as long as its wrapper is running, including a wrapper which the
+     * server is handed over to later on.
+     */
+    MessageHandler(@NotNull ServerListener listener) {
+        this.listener = listener;
+        this.isRunning = this::isWrapperRunning;
+    }
+
     @Override
     public MessageConsumer apply(MessageConsumer messageConsumer) {
         return message -> {
@@ -47,7 +57,7 @@ class MessageHandler implements Function<MessageConsumer, MessageConsumer> {
                     messageConsumer.consume(message);
                 }
             }catch (Exception e){
-                languageServerWrapper.connectionFailed();
+                connectionFailed();
                 Log.info(e.getMessage());
             }
         };
@@ -63,6 +73,14 @@ class MessageHandler implements Function<MessageConsumer, MessageConsumer> {
         }
     }
 
+    void connectionFailed() {
+        languageServerWrapper.connectionFailed();
+    }
+
+    boolean isWrapperRunning() {
+        return languageServerWrapper.getStatus() != ServerStatus.STOPPED;
+    }
+
     void setLanguageServerWrapper(@NotNull LanguageServerWrapper languageServerBurrito) {
         this.languageServerWrapper = languageServerBurrito;
     }
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.client.languageserver.wrapper;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.eclipse.lsp4j.InitializeResult;
+import org.eclipse.lsp4j.InitializedParams;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.services.LanguageServer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.wso2.lsp4intellij.client.DefaultLanguageClient;
+import org.wso2.lsp4intellij.client.ServerWrapperBaseClientContext;
+import org.wso2.lsp4intellij.client.connection.StreamConnectionProvider;
+import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager;
+import org.wso2.lsp4intellij.client.languageserver.serverdefinition.LanguageServerDefinition;
+import org.wso2.lsp4intellij.client.languageserver.serverdefinition.ServerListener;
+import org.wso2.lsp4intellij.editor.EditorEventManager;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.wso2.lsp4intellij.requests.Timeout.getTimeout;
+import static org.wso2.lsp4intellij.requests.Timeouts.INIT;
+import static org.wso2.lsp4intellij.requests.Timeouts.SHUTDOWN;
+
+/**
+ * The warm spare servers of a {@link LanguageServerWrapper}, i.e. servers which are started and initialized in the
+ * background, so that one of them can replace the active server at once when it crashes or is restarted.
+ */
+class SpareServerPool {
+
+    private static final Logger LOG = Logger.getInstance(SpareServerPool.class);
+    // Interval in seconds at which the memory of the idle spares is checked against the budget.
+    private static final long MEMORY_CHECK_INTERVAL = 60;
+    // Starting and stopping spares blocks for up to the initialize and shutdown timeouts, hence it is kept off the
+    // plugin's request pool.
+    private static final ExecutorService EXECUTOR = AppExecutorUtil
+            .createBoundedApplicationPoolExecutor("LSP Spare Servers", 2);
+
+    private final LanguageServerWrapper wrapper;
+    private final Deque<SpareServer> spares = new ConcurrentLinkedDeque<>();
+    // Number of spares being started, and the generation they belong to (incremented when the pool is cleared).
+    private int starting = 0;
+    private int generation = 0;
+    private ScheduledFuture<?> memoryCheck;
+
+    SpareServerPool(LanguageServerWrapper wrapper) {
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Starts spares in the background, until the configured number of spares is reached or the idle spares exceed the
+     * memory budget.
+     */
+    synchronized void replenish() {
+        LanguageServerDefinition definition = wrapper.getServerDefinition();
+        int missing = definition.getWarmSpares() - spares.size() - starting;
+        for (; missing > 0 && isWithinBudget(); missing--) {
+            starting++;
+            final int spareGeneration = generation;
+            EXECUTOR.execute(() -> startSpare(spareGeneration));
+        }
+        if (definition.getWarmSpares() > 0 && definition.getSpareMemoryBudget() > 0 && memoryCheck == null) {
+            memoryCheck = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+                    this::enforceMemoryBudget, MEMORY_CHECK_INTERVAL, MEMORY_CHECK_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Removes a running spare from the pool.
+     *
+     * @return The spare, or null if there is no spare ready
+     */
+    SpareServer take() {
+        SpareServer spare;
+        while ((spare = spares.poll()) != null) {
+            if (spare.isAlive()) {
+                return spare;
+            }
+            EXECUTOR.execute(spare::stop);
+        }
+        return null;
+    }
+
+    /**
+     * Stops all the spares, including the ones still starting.
+     */
+    void clear() {
+        List<SpareServer> stopped = new ArrayList<>();
+        synchronized (this) {
+            generation++;
+            starting = 0;
+            if (memoryCheck != null) {
+                memoryCheck.cancel(false);
+                memoryCheck = null;
+            }
+            SpareServer spare;
+            while ((spare = spares.poll()) != null) {
+                stopped.add(spare);
+            }
+        }
+        // Stopped right away (rather than in the background), since the IDE may be exiting.
+        stopped.forEach(SpareServer::stop);
+    }
+
+    private void startSpare(int spareGeneration) {
+        SpareServer spare = null;
+        try {
+            spare = SpareServer.start(wrapper);
+            synchronized (this) {
+                if (spareGeneration == generation) {
+                    spares.add(spare);
+                    starting--;
+                    spare = null;
+                }
+            }
+            enforceMemoryBudget();
+        } catch (Exception e) {
+            LOG.warn("Could not start a spare server for " + wrapper.getServerDefinition(), e);
+            synchronized (this) {
+                if (spareGeneration == generation) {
+                    starting--;
+                }
+            }
+        } finally {
+            if (spare != null) {
+                // The pool was cleared in the meantime.
+                spare.stop();
+            }
+        }
+    }
+
+    private boolean isWithinBudget() {
+        long budget = wrapper.getServerDefinition().getSpareMemoryBudget();
+        return budget <= 0 || getMemoryUsage() < budget;
+    }
+
+    private long getMemoryUsage() {
+        long total = 0;
+        for (SpareServer spare : spares) {
+            total += Math.max(0, spare.getMemoryUsage());
+        }
+        return total;
+    }
+
+    /**
+     * Drops the newest spares while the idle spares exceed the memory budget.
+     */
+    private void enforceMemoryBudget() {
+        long budget = wrapper.getServerDefinition().getSpareMemoryBudget();
+        if (budget <= 0) {
+            return;
+        }
+        long total = getMemoryUsage();
+        while (total > budget) {
+            SpareServer spare = spares.pollLast();
+            if (spare == null) {
+                break;
+            }
+            total -= Math.max(0, spare.getMemoryUsage());
+            LOG.info("Stopping a spare server of " + wrapper.getServerDefinition() + ", as the idle spares exceed "
+                    + "the memory budget of " + budget + " bytes.");
+            spare.stop();
+        }
+    }
+
+    /**
+     * A started and initialized server, which is not used until it is promoted.
+     */
+    static final class SpareServer {
+
+        private final SpareClientContext context;
+        final StreamConnectionProvider provider;
+        DefaultLanguageClient client;
+        MessageHandler messageHandler;
+        LanguageServer server;
+        Future<?> launcherFuture;
+        InitializeResult initializeResult;
+        private volatile boolean stopped = false;
+        private volatile boolean promoted = false;
+
+        private SpareServer(LanguageServerWrapper wrapper, StreamConnectionProvider provider) {
+            this.provider = provider;
+            this.context = new SpareClientContext(wrapper);
+        }
+
+        /**
+         * Starts a server for the given wrapper, and waits until it is initialized.
+         */
+        static SpareServer start(LanguageServerWrapper wrapper) throws Exception {
+            LanguageServerDefinition definition = wrapper.getServerDefinition();
+            SpareServer spare = new SpareServer(wrapper, definition.startSpare(wrapper.getProjectRootPath()));
+            try {
+                spare.client = wrapper.createClient(spare.context);
+                // The server listener is notified once the spare is promoted.
+                spare.messageHandler = new MessageHandler(ServerListener.DEFAULT, spare::isRunning) {
+                    @Override
+                    void connectionFailed() {
+                        if (spare.promoted) {
+                            super.connectionFailed();
+                        } else {
+                            spare.stop();
+                        }
+                    }
+                };
+                spare.messageHandler.setLanguageServerWrapper(wrapper);
+                Launcher<? extends LanguageServer> launcher = Launcher.createLauncher(spare.client,
+                        wrapper.getServerInterface(), spare.provider.getInputStream(),
+                        spare.provider.getOutputStream(), Executors.newCachedThreadPool(), spare.messageHandler);
+                spare.server = launcher.getRemoteProxy();
+                spare.launcherFuture = launcher.startListening();
+                spare.initializeResult = spare.server
+                        .initialize(spare.client.getInitParams(wrapper.getProjectRootPath()))
+                        .get(getTimeout(INIT), TimeUnit.MILLISECONDS);
+                spare.server.initialized(new InitializedParams());
+                LOG.info("Started a spare server for " + definition + " ; " + wrapper.getProjectRootPath());
+                return spare;
+            } catch (Exception e) {
+                spare.stop();
+                throw e;
+            }
+        }
+
+        /**
+         * Marks the spare as the active server of its wrapper, which is stopped by the wrapper from now on.
+         */
+        void promote() {
+            promoted = true;
+            context.active = true;
+        }
+
+        ServerWrapperBaseClientContext getContext() {
+            return context;
+        }
+
+        boolean isAlive() {
+            return !stopped && launcherFuture != null && !launcherFuture.isDone();
+        }
+
+        long getMemoryUsage() {
+            return provider.getMemoryUsage();
+        }
+
+        private boolean isRunning() {
+            // Once promoted, the messages are handled as long as the wrapper is running, as for any active server.
+            return promoted ? messageHandler.isWrapperRunning() : !stopped;
+        }
+
+        void stop() {
+            if (stopped || promoted) {
+                return;
+            }
+            stopped = true;
+            try {
+                if (server != null) {
+                    server.shutdown().get(getTimeout(SHUTDOWN), TimeUnit.MILLISECONDS);
+                    server.exit();
+                }
+            } catch (Exception e) {
+                // Most likely closed externally.
+                LOG.debug(e);
+            } finally {
+                if (launcherFuture != null) {
+                    launcherFuture.cancel(true);
+                }
+                provider.stop();
+            }
+        }
+    }
+
+    /**
+     * The client context of a spare, which doesn't act on the requests and notifications of the server (e.g.
+     * diagnostics and edits, which would otherwise reach the editors of the active server) until it is promoted.
+     */
+    private static final class SpareClientContext extends ServerWrapperBaseClientContext {
+
+        private volatile boolean active = false;
+
+        SpareClientContext(@NotNull LanguageServerWrapper wrapper) {
+            super(wrapper);
+        }
+
+        @Nullable
+        @Override
+        public EditorEventManager getEditorEventManagerFor(@NotNull String documentUri) {
+            return active ? super.getEditorEventManagerFor(documentUri) : null;
+        }
+
+        @Nullable
+        @Override
+        public RequestManager getRequestManager() {
+            return active ? super.getRequestManager() : null;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.contributors;
+
+import com.intellij.lang.documentation.AbstractDocumentationProvider;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.eclipse.lsp4j.CompletionItem;
+import org.wso2.lsp4intellij.contributors.psi.LSPPsiElement;
+import org.wso2.lsp4intellij.editor.EditorEventManager;
+import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
+import org.wso2.lsp4intellij.utils.FileUtils;
+
+/**
+ * Shows the documentation of the LSP completion items in the documentation popup of the lookup. The items are
+ * resolved (completionItem/resolve) if needed, as servers may only send their documentation on resolve.
+ */
+public class LSPDocumentationProvider extends AbstractDocumentationProvider {
+
+    @Override
+    public PsiElement getDocumentationElementForLookupItem(PsiManager psiManager, Object object, PsiElement element) {
+        if (!(object instanceof CompletionItem) || element == null) {
+            return null;
+        }
+        PsiFile file = element.getContainingFile();
+        if (file == null) {
+            return null;
+        }
+        return new CompletionItemElement((CompletionItem) object, file, element.getTextOffset());
+    }
+
+    @Override
+    public String generateDoc(PsiElement element, PsiElement originalElement) {
+        if (!(element instanceof CompletionItemElement)) {
+            return null;
+        }
+        VirtualFile file = element.getContainingFile().getVirtualFile();
+        EditorEventManager manager = file != null ?
+                EditorEventManagerBase.forUri(FileUtils.uriFromVirtualFile(file)) : null;
+        if (manager == null) {
+            return null;
+        }
+        return manager.getCompletionDocumentation(((CompletionItemElement) element).item);
+    }
+
+    /**
+     * The element standing for a completion item in the documentation popup. Elements of different items are never
+     * equal, so that the popup is updated when another item is highlighted.
+     */
+    private static class CompletionItemElement extends LSPPsiElement {
+
+        private final CompletionItem item;
+
+        CompletionItemElement(CompletionItem item, PsiFile file, int offset) {
+            super(item.getLabel(), file.getProject(), offset, offset, file);
+            this.item = item;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CompletionItemElement && ((CompletionItemElement) o).item == item;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(item);
+        }
+    }
+}
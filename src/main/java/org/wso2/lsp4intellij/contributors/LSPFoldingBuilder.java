@@ -1,95 +1,254 @@
 package org.wso2.lsp4intellij.contributors;
 
+import com.intellij.codeInsight.folding.CodeFoldingManager;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.folding.CustomFoldingBuilder;
 import com.intellij.lang.folding.FoldingDescriptor;
-import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.editor.FoldingGroup;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import org.eclipse.lsp4j.FoldingRange;
 import org.eclipse.lsp4j.FoldingRangeRequestParams;
-import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.jsonrpc.JsonRpcException;
 import org.jetbrains.annotations.NotNull;
-import org.wso2.lsp4intellij.IntellijLanguageClient;
-import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
-import org.wso2.lsp4intellij.contributors.psi.LSPPsiElement;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
+import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
 import org.wso2.lsp4intellij.requests.Timeout;
 import org.wso2.lsp4intellij.requests.Timeouts;
-import org.wso2.lsp4intellij.utils.DocumentUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.computableReadAction;
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.invokeLater;
+
+/**
+ * Builds the fold regions from the folding ranges of the language server.
+ * <p>
+ * The ranges of the last response are kept on the document as range markers, hence a rebuild after an edit uses the
+ * previous result (moved along with the edits) right away and refreshes it in the background. Only the very first
+ * (non quick) build of a document waits for the server.
+ */
 public class LSPFoldingBuilder extends CustomFoldingBuilder {
 
+  private static final Logger LOG = Logger.getInstance(LSPFoldingBuilder.class);
+  private static final Key<CachedRanges> FOLDING_RANGES = Key.create("lsp.folding.ranges");
+  private static final Key<Long> REQUESTED_STAMP = Key.create("lsp.folding.requested.stamp");
+  private static final String PLACEHOLDER = "...";
+
   @Override
   protected void buildLanguageFoldRegions(@NotNull List<FoldingDescriptor> descriptors, @NotNull PsiElement root, @NotNull Document document, boolean quick) {
     final PsiFile containingFile = root.getContainingFile();
-    if( containingFile == null){
+    if (containingFile == null || root.getNode() == null) {
       return;
     }
     final VirtualFile vf = containingFile.getVirtualFile();
-    if (vf== null) {
+    if (vf == null) {
       return;
     }
-    final Set<LanguageServerWrapper> allServerWrappersFor = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(FileUtils.projectToUri(root.getProject()));
-    // TODO: [ms] implement for multiple servers
-    final Optional<LanguageServerWrapper> any = allServerWrappersFor.stream().findAny();
-    if(!any.isPresent()){
+    final EditorEventManager manager = EditorEventManagerBase.forUri(FileUtils.uriFromVirtualFile(vf));
+    if (manager == null) {
       return;
     }
-    final LanguageServerWrapper wrapper = any.get();
 
-    final EditorEventManager editorEventManager = wrapper.getConnectedEditors().get(FileUtils.uriFromVirtualFile(vf));
-    if(editorEventManager == null){
-      return;
+    final long stamp = document.getModificationStamp();
+    CachedRanges cached = document.getUserData(FOLDING_RANGES);
+    if (cached == null && !quick) {
+      cached = requestBlocking(manager, document, stamp);
+    } else if (cached == null || cached.stamp != stamp) {
+      requestAsync(manager, document, stamp);
     }
-
-    final CompletableFuture<List<FoldingRange>> foldingFuture = editorEventManager.getRequestManager().foldingRange(new FoldingRangeRequestParams(editorEventManager.getIdentifier()));
-    if(foldingFuture == null){
-      return;
+    if (cached != null) {
+      cached.addDescriptors(descriptors, root.getNode(), document.getTextLength());
     }
+  }
 
+  private static CachedRanges requestBlocking(EditorEventManager manager, Document document, long stamp) {
+    CompletableFuture<List<FoldingRange>> future = request(manager, document, stamp);
+    if (future == null) {
+      return null;
+    }
     try {
-      List<FoldingRange> foldingRanges = foldingFuture.get(Timeout.getTimeout(Timeouts.FOLDING), TimeUnit.MILLISECONDS);
-      wrapper.notifySuccess(Timeouts.FOLDING);
-
-      for (FoldingRange foldingRange : foldingRanges) {
+      List<FoldingRange> ranges = future.get(Timeout.getTimeout(Timeouts.FOLDING), TimeUnit.MILLISECONDS);
+      manager.wrapper.notifySuccess(Timeouts.FOLDING);
+      return store(document, stamp, ranges);
+    } catch (TimeoutException e) {
+      LOG.warn(e);
+      manager.wrapper.notifyFailure(Timeouts.FOLDING);
+    } catch (InterruptedException | JsonRpcException | ExecutionException e) {
+      LOG.warn(e);
+      manager.wrapper.crashed(e);
+    }
+    // Allows the next pass to retry.
+    document.putUserData(REQUESTED_STAMP, null);
+    return null;
+  }
 
-        // FIXME: [ms] here is sth strange/buggy
-        int endOffset = DocumentUtils.LSPPosToOffset(editorEventManager.editor, new Position(foldingRange.getStartLine(), foldingRange.getStartCharacter()));
-        int startoffset = DocumentUtils.LSPPosToOffset(editorEventManager.editor, new Position(foldingRange.getEndLine(), foldingRange.getEndCharacter()));
-        final String text = editorEventManager.editor.getDocument().getText(new TextRange(startoffset, endOffset));
-        descriptors.add( new FoldingDescriptor(new LSPPsiElement(text, editorEventManager.getProject(), startoffset, endOffset, root.getContainingFile()), startoffset, endOffset, FoldingGroup.newGroup(foldingRange.getKind()), "..."));
+  private static void requestAsync(EditorEventManager manager, Document document, long stamp) {
+    CompletableFuture<List<FoldingRange>> future = request(manager, document, stamp);
+    if (future == null) {
+      return;
+    }
+    Project project = manager.getProject();
+    future.whenComplete((ranges, t) -> {
+      if (t != null) {
+        LOG.warn(t);
+        document.putUserData(REQUESTED_STAMP, null);
+        return;
       }
+      List<Runnable> updates = computableReadAction(() -> {
+        if (project.isDisposed()) {
+          return Collections.emptyList();
+        }
+        CachedRanges previous = document.getUserData(FOLDING_RANGES);
+        List<TextRange> previousRanges = previous != null ? previous.getRanges() : null;
+        CachedRanges cached = store(document, stamp, ranges);
+        if (cached == null || cached.getRanges().equals(previousRanges)) {
+          // The fold regions built from the previous ranges are still up to date.
+          return Collections.emptyList();
+        }
+        // Refreshes only the fold regions of the editors, which picks up the stored ranges.
+        List<Runnable> result = new ArrayList<>();
+        for (Editor editor : EditorFactory.getInstance().getEditors(document, project)) {
+          Runnable update = CodeFoldingManager.getInstance(project).updateFoldRegionsAsync(editor, false);
+          if (update != null) {
+            result.add(() -> {
+              if (!editor.isDisposed()) {
+                update.run();
+              }
+            });
+          }
+        }
+        return result;
+      });
+      if (!updates.isEmpty()) {
+        invokeLater(() -> updates.forEach(Runnable::run));
+      }
+    });
+  }
 
-
-    } catch (InterruptedException | TimeoutException | ExecutionException e) {
-      e.printStackTrace();
-      wrapper.notifyFailure(Timeouts.FOLDING);
+  /**
+   * Sends the folding range request, unless one was already sent for the given document version.
+   */
+  private static CompletableFuture<List<FoldingRange>> request(EditorEventManager manager, Document document, long stamp) {
+    Long requested = document.getUserData(REQUESTED_STAMP);
+    if (requested != null && requested == stamp) {
+      return null;
     }
+    document.putUserData(REQUESTED_STAMP, stamp);
+    return manager.getRequestManager().foldingRange(new FoldingRangeRequestParams(manager.getIdentifier()));
+  }
+
+  /**
+   * Converts the folding ranges to range markers in a single pass, and replaces the previous result. The ranges are
+   * dropped if the document has changed since they were requested, as their positions no longer apply.
+   */
+  private static CachedRanges store(Document document, long stamp, List<FoldingRange> ranges) {
+    return computableReadAction(() -> {
+      if (document.getModificationStamp() != stamp) {
+        return null;
+      }
+      List<RangeMarker> markers = new ArrayList<>(ranges == null ? 0 : ranges.size());
+      if (ranges != null) {
+        for (FoldingRange range : ranges) {
+          int start = toOffset(document, range.getStartLine(), range.getStartCharacter());
+          int end = toOffset(document, range.getEndLine(), range.getEndCharacter());
+          if (start >= 0 && end > start) {
+            markers.add(document.createRangeMarker(start, end));
+          }
+        }
+      }
+      CachedRanges cached = new CachedRanges(stamp, markers);
+      CachedRanges previous = document.getUserData(FOLDING_RANGES);
+      document.putUserData(FOLDING_RANGES, cached);
+      if (previous != null) {
+        previous.dispose();
+      }
+      return cached;
+    });
+  }
 
+  /**
+   * Returns the offset of the given position, where a missing character means the end of the line. Returns -1 if the
+   * line is outside of the document.
+   */
+  private static int toOffset(Document document, int line, Integer character) {
+    if (line < 0 || line >= document.getLineCount()) {
+      return -1;
+    }
+    int lineStart = document.getLineStartOffset(line);
+    int lineEnd = document.getLineEndOffset(line);
+    if (character == null) {
+      return lineEnd;
+    }
+    return lineStart + Math.max(0, Math.min(character, lineEnd - lineStart));
   }
 
   @Override
   protected String getLanguagePlaceholderText(@NotNull ASTNode node, @NotNull TextRange range) {
-    // TODO: [ms] implement/improve dots
-    return "...";
+    return PLACEHOLDER;
   }
 
   @Override
   protected boolean isRegionCollapsedByDefault(@NotNull ASTNode node) {
     return false;
   }
+
+  /**
+   * The folding ranges of a document version, tracked through the later edits.
+   */
+  private static class CachedRanges {
+
+    private final long stamp;
+    private final List<RangeMarker> markers;
+
+    CachedRanges(long stamp, List<RangeMarker> markers) {
+      this.stamp = stamp;
+      this.markers = Collections.unmodifiableList(markers);
+    }
+
+    /**
+     * @return The current ranges of the valid markers
+     */
+    List<TextRange> getRanges() {
+      List<TextRange> ranges = new ArrayList<>(markers.size());
+      for (RangeMarker marker : markers) {
+        if (marker.isValid()) {
+          ranges.add(TextRange.create(marker));
+        }
+      }
+      return ranges;
+    }
+
+    void addDescriptors(List<FoldingDescriptor> descriptors, ASTNode node, int textLength) {
+      for (RangeMarker marker : markers) {
+        if (!marker.isValid()) {
+          continue;
+        }
+        int start = marker.getStartOffset();
+        int end = marker.getEndOffset();
+        if (end > start && end <= textLength) {
+          descriptors.add(new FoldingDescriptor(node, new TextRange(start, end), null, PLACEHOLDER));
+        }
+      }
+    }
+
+    void dispose() {
+      markers.forEach(RangeMarker::dispose);
+    }
+  }
 }
@@ -16,6 +16,7 @@
 package org.wso2.lsp4intellij.contributors.fixes;
 
 import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiFile;
@@ -30,6 +31,8 @@ import java.util.Collections;
 
 public class LSPCodeActionFix implements IntentionAction {
 
+    private static final Logger LOG = Logger.getInstance(LSPCodeActionFix.class);
+
     private final String uri;
     private final CodeAction codeAction;
 
@@ -59,17 +62,29 @@ public class LSPCodeActionFix implements IntentionAction {
 
     @Override
     public void invoke(@NotNull Project project, Editor editor, PsiFile psiFile) {
-        if (codeAction.getEdit() != null) {
-            WorkspaceEditHandler.applyEdit(codeAction.getEdit(), codeAction.getTitle());
+        if (codeAction.getEdit() == null) {
+            executeCommand();
+            return;
         }
+        // The command is executed once the edit is applied, and not at all if it couldn't be applied.
+        WorkspaceEditHandler.applyEditAsync(codeAction.getEdit(), codeAction.getTitle()).thenAccept(applied -> {
+            if (applied) {
+                executeCommand();
+            } else {
+                LOG.warn("Couldn't apply the edit of code action " + codeAction.getTitle());
+            }
+        });
+    }
+
+    private void executeCommand() {
         EditorEventManager manager = EditorEventManagerBase.forUri(uri);
-        if (manager != null) {
+        if (manager != null && codeAction.getCommand() != null) {
             manager.executeCommands(Collections.singletonList(codeAction.getCommand()));
         }
     }
 
     @Override
     public boolean startInWriteAction() {
-        return true;
+        return false;
     }
 }
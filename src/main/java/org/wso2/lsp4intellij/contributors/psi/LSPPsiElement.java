@@ -18,6 +18,7 @@ package org.wso2.lsp4intellij.contributors.psi;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.Language;
 import com.intellij.navigation.ItemPresentation;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
@@ -54,19 +55,25 @@ import org.wso2.lsp4intellij.utils.FileUtils;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
+import java.util.Objects;
 
 /**
- * A simple PsiElement for LSP
+ * A simple PsiElement for LSP.
+ * <p>
+ * Elements are created for every reference, usage and symbol result, hence they only hold the file and the offsets.
+ * The text, the reference and the user data are created on demand.
  */
 public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElement {
 
-    private final Key<KeyFMap> COPYABLE_USER_MAP_KEY = Key.create("COPYABLE_USER_MAP_KEY");
-    private final AtomicFieldUpdater<LSPPsiElement, KeyFMap> updater = AtomicFieldUpdater.forFieldOfType(LSPPsiElement.class, KeyFMap.class);
-    private final PsiManager manager;
-    private final LSPPsiReference reference;
+    private static final Key<KeyFMap> COPYABLE_USER_MAP_KEY = Key.create("COPYABLE_USER_MAP_KEY");
+    private static final AtomicFieldUpdater<LSPPsiElement, KeyFMap> updater = AtomicFieldUpdater.forFieldOfType(LSPPsiElement.class, KeyFMap.class);
+    /**
+     * Only set if there is no containing file, otherwise the project of the file is used.
+     */
     private final Project project;
-    private String name;
     private final PsiFile file;
+    private volatile String name;
+    private volatile PsiReference reference;
     public final int start;
     public final int end;
 
@@ -77,13 +84,22 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      * @param end     The offset where it ends
      */
     public LSPPsiElement(String name, @NotNull Project project, int start, int end, PsiFile file) {
-        this.project = project;
+        this.project = file == null ? project : null;
         this.name = name;
         this.start = start;
         this.end = end;
         this.file = file;
-        manager = PsiManager.getInstance(project);
-        reference = new LSPPsiReference(this);
+    }
+
+    /**
+     * Creates an element whose name is read from the document of the file when it is first needed.
+     *
+     * @param project The project it belongs to
+     * @param start   The offset in the editor where the element starts
+     * @param end     The offset where it ends
+     */
+    public LSPPsiElement(@NotNull Project project, int start, int end, PsiFile file) {
+        this(null, project, start, end, file);
     }
 
     /**
@@ -107,7 +123,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      * @return the PSI manager instance.
      */
     public PsiManager getManager() {
-        return manager;
+        return PsiManager.getInstance(getProject());
     }
 
     /**
@@ -220,7 +236,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      */
     @NotNull
     public char[] textToCharArray() {
-        return name.toCharArray();
+        return getText().toCharArray();
     }
 
     /**
@@ -285,7 +301,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      * @return the element text.
      */
     public String getText() {
-        return name;
+        return getName();
     }
 
     /**
@@ -491,7 +507,13 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      * @see com.intellij.psi.search.searches.ReferencesSearch
      */
     public PsiReference getReference() {
-        return reference;
+        // Created on first use. A concurrent first call may create a second, equivalent reference, which is harmless.
+        PsiReference ref = reference;
+        if (ref == null) {
+            ref = new LSPPsiReference(this);
+            reference = ref;
+        }
+        return ref;
     }
 
     /**
@@ -509,7 +531,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      */
     @NotNull
     public PsiReference[] getReferences() {
-        return new PsiReference[]{reference};
+        return new PsiReference[]{getReference()};
     }
 
     /**
@@ -585,7 +607,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      * toString() should never be presented to the user.
      */
     public String toString() {
-        return "Name : " + name + " at offset " + start + " to " + end + " in " + project;
+        return "Name : " + name + " at offset " + start + " to " + end + " in " + getProject();
     }
 
     /**
@@ -716,7 +738,23 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
     }
 
     public String getName() {
-        return name;
+        String text = name;
+        if (text == null) {
+            text = ApplicationUtils.computableReadAction(this::readText);
+            name = text;
+        }
+        return text;
+    }
+
+    private String readText() {
+        Document document = file != null && file.isValid() ?
+                PsiDocumentManager.getInstance(file.getProject()).getDocument(file) : null;
+        if (document == null) {
+            return "";
+        }
+        int length = document.getTextLength();
+        int from = Math.min(Math.max(start, 0), length);
+        return document.getText(new TextRange(from, Math.min(Math.max(end, from), length)));
     }
 
     public void navigate(boolean requestFocus) {
@@ -748,7 +786,7 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
      */
     @NotNull
     public Project getProject() {
-        return project;
+        return file != null ? file.getProject() : project;
     }
 
     /**
@@ -780,9 +818,18 @@ public class LSPPsiElement implements PsiNameIdentifierOwner, NavigatablePsiElem
 
     @Override
     public boolean equals(Object o) {
-        if(!(o instanceof LSPPsiSymbol)){
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
             return false;
         }
-        return start == ((LSPPsiSymbol) o).start && end == ((LSPPsiSymbol) o).end && name.equals(((LSPPsiSymbol) o).getName()) && file.equals(((LSPPsiSymbol) o).getContainingFile());
+        LSPPsiElement that = (LSPPsiElement) o;
+        return start == that.start && end == that.end && Objects.equals(file, that.file);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(file, start, end);
     }
 }
@@ -47,7 +47,8 @@ public class LSPInplaceRenamer extends MemberInplaceRenamer {
     @Override
     public Collection<PsiReference> collectRefs(SearchScope referencesSearchScope) {
         EditorEventManager eventManager = EditorEventManagerBase.forEditor(editor);
-        if (eventManager != null) {
+        // A server which renames symbols itself updates the other occurrences once the new name is entered.
+        if (eventManager != null && !eventManager.isRenameSupported()) {
             Pair<List<PsiElement>, List<VirtualFile>> results = eventManager
                     .references(editor.getCaretModel().getCurrentCaret().getOffset(), true, false);
             List<PsiElement> references = results.getFirst();
@@ -27,7 +27,9 @@ import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.ui.NonEmptyInputValidator;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.Pass;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiNameIdentifierOwner;
@@ -150,6 +152,17 @@ public class LSPRenameHandler implements RenameHandler {
     }
 
     private LSPPsiElement getElementAtOffset(EditorEventManager eventManager, int offset) {
+        if (eventManager.isPrepareRenameSupported()) {
+            TextRange range = eventManager.prepareRename(offset);
+            PsiFile file = PsiDocumentManager.getInstance(eventManager.getProject())
+                    .getPsiFile(eventManager.editor.getDocument());
+            if (range == null || file == null) {
+                return null;
+            }
+            return new LSPPsiElement(eventManager.getProject(), range.getStartOffset(), range.getEndOffset(), file);
+        }
+
+        // Falls back to the reference at the offset.
         Pair<List<PsiElement>, List<VirtualFile>> refResponse = eventManager.references(offset, true, false);
         List<PsiElement> refs = refResponse.getFirst();
         if (refs == null || refs.isEmpty()) {
@@ -71,32 +71,26 @@ public class LSPRenameProcessor extends RenamePsiElementProcessor {
     // Todo - remove and change the minimum compatible version to IDEA 2019.2, once this deprecated method is removed.
     @NotNull
     public Collection<PsiReference> findReferences(@NotNull PsiElement element, boolean searchInCommentsAndStrings) {
-        if (element instanceof LSPPsiElement) {
-            if (elements.contains(element)) {
-                return elements.stream().map(PsiElement::getReference).filter(Objects::nonNull).collect(Collectors.toList());
-            } else {
-                EditorEventManager manager = EditorEventManagerBase.forEditor(FileUtils.editorFromPsiFile(element.getContainingFile()));
-                if (manager != null) {
-                    Pair<List<PsiElement>, List<VirtualFile>> refs = manager.references(element.getTextOffset(), true, false);
-                    if (refs.getFirst() != null && refs.getSecond() != null) {
-                        addEditors(refs.getSecond());
-                        return refs.getFirst().stream().map(PsiElement::getReference).filter(Objects::nonNull).collect(Collectors.toList());
-                    }
-                }
-            }
-        }
-        return new ArrayList<>();
+        return references(element);
     }
 
     @NotNull
     public Collection<PsiReference> findReferences(@NotNull PsiElement element, @NotNull SearchScope searchScope,
                                                    boolean searchInCommentsAndStrings) {
+        return references(element);
+    }
+
+    /**
+     * Finds the references through the server, unless it renames symbols itself, in which case the edit is computed
+     * by the server in {@link #renameElement} and no references (nor the editors they open) are needed.
+     */
+    private Collection<PsiReference> references(PsiElement element) {
         if (element instanceof LSPPsiElement) {
             if (elements.contains(element)) {
                 return elements.stream().map(PsiElement::getReference).filter(Objects::nonNull).collect(Collectors.toList());
             }
             EditorEventManager manager = EditorEventManagerBase.forEditor(FileUtils.editorFromPsiFile(element.getContainingFile()));
-            if (manager != null) {
+            if (manager != null && !manager.isRenameSupported()) {
                 Pair<List<PsiElement>, List<VirtualFile>> refs = manager.references(element.getTextOffset(), true, false);
                 if (refs.getFirst() != null && refs.getSecond() != null) {
                     addEditors(refs.getSecond());
@@ -107,11 +101,19 @@ public class LSPRenameProcessor extends RenamePsiElementProcessor {
         return new ArrayList<>();
     }
 
-    //TODO may rename invalid elements
+    /**
+     * Renames through the server if it supports renaming, and otherwise builds the edit from the usages.
+     */
     @Override
     public void renameElement(@NotNull PsiElement element, @NotNull String newName, @NotNull UsageInfo[] usages,
                               RefactoringElementListener listener) {
-        WorkspaceEditHandler.applyEdit(element, newName, usages, listener, new ArrayList<>(openedEditors));
+        EditorEventManager manager = EditorEventManagerBase
+                .forEditor(FileUtils.editorFromPsiFile(element.getContainingFile()));
+        if (manager != null && manager.isRenameSupported()) {
+            manager.rename(newName, element.getTextOffset());
+        } else {
+            WorkspaceEditHandler.applyEdit(element, newName, usages, listener, new ArrayList<>(openedEditors));
+        }
         openedEditors.clear();
         elements.clear();
         curElem = null;
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.contributors.symbol;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.SymbolKind;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.wso2.lsp4intellij.contributors.psi.LSPPsiSymbol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * The symbols of one version of a document, as a tree with precomputed offsets. Flat symbol information results are
+ * nested by the containment of their ranges.
+ */
+public final class DocumentSymbolModel {
+
+  private static final Comparator<Symbol> BY_POSITION = Comparator.comparingInt((Symbol symbol) -> symbol.startOffset)
+      .thenComparing(Comparator.comparingInt((Symbol symbol) -> symbol.endOffset).reversed());
+
+  private final long modificationStamp;
+  private final List<Symbol> roots;
+  private volatile List<Symbol> allSymbols;
+
+  private DocumentSymbolModel(long modificationStamp, List<Symbol> roots) {
+    this.modificationStamp = modificationStamp;
+    this.roots = roots;
+  }
+
+  /**
+   * Creates the model of a document symbol response.
+   *
+   * @param modificationStamp The modification stamp of the document the response belongs to
+   * @param symbols           The document symbol response
+   * @param toOffset          Converts an LSP position to an offset of the document
+   */
+  static DocumentSymbolModel create(long modificationStamp, @Nullable List<Either<SymbolInformation, DocumentSymbol>> symbols,
+                                    ToIntFunction<Position> toOffset) {
+    List<Symbol> roots = new ArrayList<>();
+    List<Symbol> flatSymbols = new ArrayList<>();
+    if (symbols != null) {
+      for (Either<SymbolInformation, DocumentSymbol> either : symbols) {
+        if (either == null) {
+          continue;
+        }
+        if (either.isLeft() && either.getLeft().getLocation() != null) {
+          SymbolInformation info = either.getLeft();
+          Range range = info.getLocation().getRange();
+          flatSymbols.add(new Symbol(info.getKind(), info.getName(), null, range, range, toOffset.applyAsInt(range.getStart()),
+              toOffset.applyAsInt(range.getEnd()), Collections.emptyList()));
+        } else if (either.isRight()) {
+          roots.add(fromDocumentSymbol(either.getRight(), toOffset));
+        }
+      }
+    }
+    roots.addAll(nest(flatSymbols));
+    roots.sort(BY_POSITION);
+    return new DocumentSymbolModel(modificationStamp, Collections.unmodifiableList(roots));
+  }
+
+  private static Symbol fromDocumentSymbol(DocumentSymbol docSymbol, ToIntFunction<Position> toOffset) {
+    List<Symbol> children = new ArrayList<>();
+    if (docSymbol.getChildren() != null) {
+      for (DocumentSymbol child : docSymbol.getChildren()) {
+        children.add(fromDocumentSymbol(child, toOffset));
+      }
+      children.sort(BY_POSITION);
+    }
+    Range range = docSymbol.getRange();
+    Range selectionRange = docSymbol.getSelectionRange() != null ? docSymbol.getSelectionRange() : range;
+    return new Symbol(docSymbol.getKind(), docSymbol.getName(), docSymbol.getDetail(), range, selectionRange,
+        toOffset.applyAsInt(range.getStart()), toOffset.applyAsInt(range.getEnd()), children);
+  }
+
+  /**
+   * Nests flat symbols into the innermost symbol containing their range.
+   */
+  private static List<Symbol> nest(List<Symbol> flatSymbols) {
+    if (flatSymbols.isEmpty()) {
+      return Collections.emptyList();
+    }
+    flatSymbols.sort(BY_POSITION);
+    List<Symbol> roots = new ArrayList<>();
+    Deque<Symbol> containers = new ArrayDeque<>();
+    for (Symbol symbol : flatSymbols) {
+      while (!containers.isEmpty() && containers.peek().endOffset < symbol.endOffset) {
+        containers.pop();
+      }
+      if (containers.isEmpty()) {
+        roots.add(symbol);
+      } else {
+        containers.peek().addChild(symbol);
+      }
+      containers.push(symbol);
+    }
+    return roots;
+  }
+
+  public long getModificationStamp() {
+    return modificationStamp;
+  }
+
+  /**
+   * @return The top level symbols, ordered by their position
+   */
+  @NotNull
+  public List<Symbol> getRoots() {
+    return roots;
+  }
+
+  /**
+   * @return All the symbols of the document, parents before their children
+   */
+  @NotNull
+  public List<Symbol> getAllSymbols() {
+    List<Symbol> all = allSymbols;
+    if (all == null) {
+      List<Symbol> collected = new ArrayList<>();
+      Deque<Symbol> stack = new ArrayDeque<>();
+      for (int i = roots.size() - 1; i >= 0; i--) {
+        stack.push(roots.get(i));
+      }
+      while (!stack.isEmpty()) {
+        Symbol symbol = stack.pop();
+        collected.add(symbol);
+        for (int i = symbol.children.size() - 1; i >= 0; i--) {
+          stack.push(symbol.children.get(i));
+        }
+      }
+      all = Collections.unmodifiableList(collected);
+      allSymbols = all;
+    }
+    return all;
+  }
+
+  /**
+   * Returns the innermost symbol containing the given offset, using a binary search on each level of the tree.
+   *
+   * @param offset An offset of the document
+   * @return The innermost symbol, or null if the offset is outside of all symbols
+   */
+  @Nullable
+  public Symbol findInnermost(int offset) {
+    Symbol found = null;
+    List<Symbol> level = roots;
+    while (!level.isEmpty()) {
+      int low = 0;
+      int high = level.size() - 1;
+      int candidate = -1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (level.get(mid).startOffset <= offset) {
+          candidate = mid;
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      if (candidate < 0 || level.get(candidate).endOffset < offset) {
+        break;
+      }
+      found = level.get(candidate);
+      level = found.children;
+    }
+    return found;
+  }
+
+  /**
+   * A symbol of the document.
+   */
+  public static final class Symbol {
+
+    private final SymbolKind kind;
+    private final String name;
+    private final String detail;
+    private final Range range;
+    private final Range selectionRange;
+    private final int startOffset;
+    private final int endOffset;
+    private List<Symbol> children;
+    private Symbol parent;
+
+    private Symbol(SymbolKind kind, String name, String detail, Range range, Range selectionRange, int startOffset,
+                   int endOffset, List<Symbol> children) {
+      this.kind = kind;
+      this.name = name;
+      this.detail = detail;
+      this.range = range;
+      this.selectionRange = selectionRange;
+      this.startOffset = startOffset;
+      this.endOffset = Math.max(startOffset, endOffset);
+      this.children = children;
+      for (Symbol child : children) {
+        child.parent = this;
+      }
+    }
+
+    private void addChild(Symbol child) {
+      if (children.isEmpty()) {
+        children = new ArrayList<>();
+      }
+      children.add(child);
+      child.parent = this;
+    }
+
+    public SymbolKind getKind() {
+      return kind;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    @Nullable
+    public String getDetail() {
+      return detail;
+    }
+
+    /**
+     * @return The LSP range of the whole symbol
+     */
+    public Range getRange() {
+      return range;
+    }
+
+    /**
+     * @return The LSP range of the identifier of the symbol
+     */
+    public Range getSelectionRange() {
+      return selectionRange;
+    }
+
+    public int getStartOffset() {
+      return startOffset;
+    }
+
+    public int getEndOffset() {
+      return endOffset;
+    }
+
+    @NotNull
+    public List<Symbol> getChildren() {
+      return children;
+    }
+
+    @Nullable
+    public Symbol getParent() {
+      return parent;
+    }
+
+    public LSPPsiSymbol toPsiElement(Project project, PsiFile file) {
+      return new LSPPsiSymbol(kind, name, project, startOffset, endOffset, file);
+    }
+  }
+}
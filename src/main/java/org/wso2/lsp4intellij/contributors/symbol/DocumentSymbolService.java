@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.contributors.symbol;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Pair;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.DocumentSymbolParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager;
+import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
+import org.wso2.lsp4intellij.editor.EditorEventManager;
+import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
+import org.wso2.lsp4intellij.requests.Timeout;
+import org.wso2.lsp4intellij.requests.Timeouts;
+import org.wso2.lsp4intellij.utils.LRUCache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
+
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.computableReadAction;
+
+/**
+ * Keeps the document symbols of the documents connected to a language server, so that the structure view, the line
+ * markers and any other consumer share a single documentSymbol request and offset conversion per document version.
+ */
+@Service
+public final class DocumentSymbolService {
+
+  private static final Logger LOG = Logger.getInstance(DocumentSymbolService.class);
+  private static final int CACHED_DOCUMENTS = 32;
+  // the wait for a response is split into slices of this many milliseconds, checking for cancellation in between
+  private static final long POLL_INTERVAL = 50;
+
+  private final Project project;
+  private final LRUCache<String, DocumentSymbolModel> models = new LRUCache<>(CACHED_DOCUMENTS);
+  // requests in flight, so that concurrent consumers of the same document version wait for the same response
+  private final Map<String, PendingRequest> pendingRequests = new HashMap<>();
+
+  public DocumentSymbolService(Project project) {
+    this.project = project;
+  }
+
+  public static DocumentSymbolService getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, DocumentSymbolService.class);
+  }
+
+  /**
+   * Returns the symbols of the current version of the given document, requesting them from the language server if
+   * they are not known yet. Blocking, but stops with a ProcessCanceledException if the current progress is cancelled.
+   *
+   * @param uri The uri of a document opened in an editor connected to a language server
+   * @return The symbols, or null if the document is not connected or the request failed
+   */
+  @Nullable
+  public DocumentSymbolModel getSymbols(@NotNull String uri) {
+    EditorEventManager manager = EditorEventManagerBase.forUri(uri);
+    if (manager == null) {
+      return null;
+    }
+    Document document = manager.editor.getDocument();
+    // the response is converted from this snapshot, as a read action on the response thread could wait for a pending
+    // write action, which in turn waits for the read action of the caller
+    Pair<Long, CharSequence> snapshot = computableReadAction(
+        () -> Pair.create(document.getModificationStamp(), document.getImmutableCharSequence()));
+    long modificationStamp = snapshot.first;
+    DocumentSymbolModel model = models.get(uri);
+    if (model != null && model.getModificationStamp() == modificationStamp) {
+      return model;
+    }
+
+    PendingRequest request;
+    synchronized (pendingRequests) {
+      request = pendingRequests.get(uri);
+      if (request == null || request.modificationStamp != modificationStamp) {
+        CompletableFuture<DocumentSymbolModel> future = requestSymbols(manager.wrapper, uri, document, modificationStamp,
+            snapshot.second);
+        if (future == null) {
+          return null;
+        }
+        request = new PendingRequest(modificationStamp, future);
+        pendingRequests.put(uri, request);
+      }
+    }
+
+    LanguageServerWrapper wrapper = manager.wrapper;
+    try {
+      model = await(request.future, System.currentTimeMillis() + Timeout.getTimeout(Timeouts.SYMBOLS));
+      wrapper.notifySuccess(Timeouts.SYMBOLS);
+      return model;
+    } catch (TimeoutException e) {
+      wrapper.notifyFailure(Timeouts.SYMBOLS);
+      return null;
+    } catch (InterruptedException | ExecutionException e) {
+      LOG.warn(e);
+      return null;
+    } finally {
+      synchronized (pendingRequests) {
+        if (pendingRequests.get(uri) == request && request.future.isDone()) {
+          pendingRequests.remove(uri);
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits for the response until the deadline, checking for cancellation of the current progress in between. The
+   * request itself is shared with the other consumers, hence it is not cancelled.
+   */
+  private static DocumentSymbolModel await(CompletableFuture<DocumentSymbolModel> future, long deadline)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    while (true) {
+      ProgressManager.checkCanceled();
+      long remaining = deadline - System.currentTimeMillis();
+      try {
+        return future.get(Math.max(0, Math.min(POLL_INTERVAL, remaining)), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (remaining <= POLL_INTERVAL) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return The symbols of the current version of the given document if they are already known, without blocking
+   */
+  @Nullable
+  public DocumentSymbolModel getCachedSymbols(@NotNull String uri) {
+    EditorEventManager manager = EditorEventManagerBase.forUri(uri);
+    DocumentSymbolModel model = models.get(uri);
+    if (manager == null || model == null
+        || model.getModificationStamp() != manager.editor.getDocument().getModificationStamp()) {
+      return null;
+    }
+    return model;
+  }
+
+  @Nullable
+  private CompletableFuture<DocumentSymbolModel> requestSymbols(LanguageServerWrapper wrapper, String uri,
+                                                                Document document, long modificationStamp,
+                                                                CharSequence text) {
+    RequestManager requestManager = wrapper.getRequestManager();
+    if (requestManager == null) {
+      return null;   // not connected
+    }
+    CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> request =
+        requestManager.documentSymbol(new DocumentSymbolParams(new TextDocumentIdentifier(uri)));
+    if (request == null) {
+      return null;
+    }
+    return request.thenApply(symbols -> {
+      DocumentSymbolModel model = DocumentSymbolModel.create(modificationStamp, symbols, offsetConverter(text));
+      if (document.getModificationStamp() == modificationStamp) {
+        models.put(uri, model);
+      }
+      return model;
+    }).thenApply(model -> {
+      if (!project.isDisposed()) {
+        WorkspaceSymbolIndex.getInstance(project).updateFile(uri, wrapper.getServerDefinition().ext,
+            model.getAllSymbols());
+      }
+      return model;
+    });
+  }
+
+  /**
+   * Returns a conversion of positions to offsets in the given text, clamped to the document as done by
+   * DocumentUtils.LSPPosToOffset. The line starts are indexed once, so no read action is needed.
+   */
+  static ToIntFunction<Position> offsetConverter(CharSequence text) {
+    int[] lineStarts = new int[16];
+    int lineCount = 1;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        if (lineCount == lineStarts.length) {
+          lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = i + 1;
+      }
+    }
+    final int[] starts = lineStarts;
+    final int lines = lineCount;
+    return position -> {
+      int line = Math.max(0, Math.min(position.getLine(), lines - 1));
+      int lineStart = starts[line];
+      int lineEnd = line + 1 < lines ? starts[line + 1] - 1 : text.length();
+      return lineStart + Math.max(0, Math.min(lineEnd - lineStart, position.getCharacter()));
+    };
+  }
+
+  private static class PendingRequest {
+    private final long modificationStamp;
+    private final CompletableFuture<DocumentSymbolModel> future;
+
+    PendingRequest(long modificationStamp, CompletableFuture<DocumentSymbolModel> future) {
+      this.modificationStamp = modificationStamp;
+      this.future = future;
+    }
+  }
+}
@@ -7,106 +7,66 @@ import com.intellij.ide.util.treeView.AbstractTreeNode;
 import com.intellij.ide.util.treeView.smartTree.*;
 import com.intellij.lang.PsiStructureViewFactory;
 import com.intellij.navigation.ItemPresentation;
-import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.psi.NavigatablePsiElement;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiPlainTextFile;
+import com.intellij.util.Alarm;
 import org.eclipse.lsp4j.*;
-import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
-import org.wso2.lsp4intellij.IntellijLanguageClient;
-import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
 import org.wso2.lsp4intellij.contributors.psi.LSPPsiSymbol;
-import org.wso2.lsp4intellij.requests.Timeout;
-import org.wso2.lsp4intellij.requests.Timeouts;
-import org.wso2.lsp4intellij.utils.DocumentUtils;
+import org.wso2.lsp4intellij.utils.ApplicationUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-
-import static java.lang.Thread.sleep;
 
 public final class LSPStructureViewFactory implements PsiStructureViewFactory {
 
-  List<TreeElement> treeElements = new ArrayList<>();
+  private static final int UPDATE_DELAY = 500;
 
-  void loadSymbols(LSPStructureViewModel lspStructureViewModel, Editor editor, @NotNull PsiFile psiFile){
+  void loadSymbols(LSPStructureViewModel lspStructureViewModel, @NotNull PsiFile psiFile){
       // load data from server
-      final Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(FileUtils.projectToUri(psiFile.getProject()));
-      final Optional<LanguageServerWrapper> wrapperOpt = wrappers.stream().findFirst();
-      if(wrapperOpt.isPresent()) {
-        final LanguageServerWrapper wrapper = wrapperOpt.get();
-        final CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> listCompletableFuture = wrapper.getRequestManager().documentSymbol(new DocumentSymbolParams(new TextDocumentIdentifier(FileUtils.uriFromVirtualFile(psiFile.getVirtualFile()))));
-
-        List<Either<SymbolInformation, DocumentSymbol>> eithers;
-        try {
-          eithers = listCompletableFuture.get(Timeout.getTimeout(Timeouts.SYMBOLS), TimeUnit.MILLISECONDS);
-          wrapper.notifySuccess(Timeouts.SYMBOLS);
-          treeElements.clear();
-
-          if(eithers != null) {
-            for (Either<SymbolInformation, DocumentSymbol> either : eithers) {
-              if (either.isLeft()) {
-                final SymbolInformation symbolInfo = either.getLeft();
-                treeElements.add(new LSPStructureViewFactory.LSPStructureViewElement(new LSPPsiSymbol(symbolInfo.getKind(), symbolInfo.getName(), psiFile.getProject(), DocumentUtils.LSPPosToOffset(editor, symbolInfo.getLocation().getRange().getStart()), DocumentUtils.LSPPosToOffset(editor, symbolInfo.getLocation().getRange().getEnd()), psiFile)));
-              } else if (either.isRight()) {
-                final DocumentSymbol docSymbol = either.getRight();
-
-                final int start = DocumentUtils.LSPPosToOffset(editor, docSymbol.getRange().getStart());
-                final int end = DocumentUtils.LSPPosToOffset(editor, docSymbol.getRange().getEnd());
-                treeElements.add(new LSPStructureViewFactory.LSPStructureViewElement(
-                        new LSPPsiSymbol(docSymbol.getKind(), docSymbol.getName(), psiFile.getProject(), start, end, psiFile)));
-              }
-            }
-          }
-
-          lspStructureViewModel.fireModelUpdate();
-
-        }catch (InterruptedException | ExecutionException | TimeoutException e) {
-          wrapper.notifyFailure(Timeouts.SYMBOLS);
-          e.printStackTrace();
-        }
+      final DocumentSymbolModel symbolModel = DocumentSymbolService.getInstance(psiFile.getProject())
+              .getSymbols(FileUtils.uriFromVirtualFile(psiFile.getVirtualFile()));
+      if (symbolModel != null) {
+        lspStructureViewModel.update(symbolModel);
       }
   }
 
   @Override
   public StructureViewBuilder getStructureViewBuilder(@NotNull final PsiFile psiFile) {
     return new TreeBasedStructureViewBuilder() {
-      CompletableFuture<Void> debouncer;
       @NotNull
       @Override
       public StructureViewModel createStructureViewModel(@Nullable Editor editor) {
 
         final LSPStructureViewModel lspStructureViewModel = new LSPStructureViewModel(psiFile);
-        loadSymbols(lspStructureViewModel, editor, psiFile);
+        final Alarm updateAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, lspStructureViewModel);
+
+        final DocumentSymbolModel cachedSymbols = DocumentSymbolService.getInstance(psiFile.getProject())
+                .getCachedSymbols(FileUtils.uriFromVirtualFile(psiFile.getVirtualFile()));
+        if (cachedSymbols != null) {
+          lspStructureViewModel.update(cachedSymbols);
+        } else {
+          updateAlarm.addRequest(() -> loadSymbols(lspStructureViewModel, psiFile), 0);
+        }
 
-        editor.getDocument().addDocumentListener(new DocumentListener() {
-          @Override
-          public void documentChanged(@NotNull DocumentEvent event){
-            // debounce: request if sth changed after a timeout
-            if(debouncer != null){
-              debouncer.cancel(true);
+        if (editor != null) {
+          // the listener is removed together with the model
+          editor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event){
+              // debounce: request if sth changed after a timeout
+              updateAlarm.cancelAllRequests();
+              updateAlarm.addRequest(() -> loadSymbols(lspStructureViewModel, psiFile), UPDATE_DELAY);
             }
-            debouncer = CompletableFuture.runAsync(() -> {
-              try {
-                sleep(500);
-              } catch (InterruptedException e) {
-                e.printStackTrace();
-              }
-              debouncer = null;
-            }).thenRun( ()-> loadSymbols(lspStructureViewModel, editor, psiFile));
-          }
-        });
+          }, lspStructureViewModel);
+        }
 
         return lspStructureViewModel;
       }
@@ -115,9 +75,13 @@ public final class LSPStructureViewFactory implements PsiStructureViewFactory {
 
   class LSPStructureViewElement implements StructureViewTreeElement, SortableTreeElement {
 
-    private final NavigatablePsiElement navigatablePsiElement;
+    // identifies the element across updates: the kind and name of the symbol and of its parents
+    private final String key;
+    private volatile NavigatablePsiElement navigatablePsiElement;
+    private volatile List<TreeElement> children = Collections.emptyList();
 
-    public LSPStructureViewElement(NavigatablePsiElement element) {
+    public LSPStructureViewElement(String key, NavigatablePsiElement element) {
+      this.key = key;
       this.navigatablePsiElement = element;
     }
 
@@ -158,11 +122,18 @@ public final class LSPStructureViewFactory implements PsiStructureViewFactory {
     @NotNull
     @Override
     public TreeElement[] getChildren() {
-      if( navigatablePsiElement instanceof PsiPlainTextFile)
-      {
-        return treeElements.toArray(new TreeElement[0]);
-      }
-      return EMPTY_ARRAY;
+      List<TreeElement> currentChildren = children;
+      return currentChildren.isEmpty() ? EMPTY_ARRAY : currentChildren.toArray(new TreeElement[0]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof LSPStructureViewElement && key.equals(((LSPStructureViewElement) o).key));
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
     }
 
   }
@@ -170,8 +141,69 @@ public final class LSPStructureViewFactory implements PsiStructureViewFactory {
   class LSPStructureViewModel extends StructureViewModelBase implements
           StructureViewModel.ElementInfoProvider {
 
+    private final PsiFile psiFile;
+    private final LSPStructureViewElement root;
+
     public LSPStructureViewModel(PsiFile psiFile) {
-      super(psiFile, new LSPStructureViewFactory.LSPStructureViewElement(psiFile));
+      this(psiFile, new LSPStructureViewElement("", psiFile));
+    }
+
+    private LSPStructureViewModel(PsiFile psiFile, LSPStructureViewElement root) {
+      super(psiFile, root);
+      this.psiFile = psiFile;
+      this.root = root;
+    }
+
+    /**
+     * Applies the given symbols to the tree. Elements of symbols which are still present keep their identity, so
+     * that the selection and the expanded nodes are preserved, and the view is only refreshed if the structure
+     * changed.
+     */
+    synchronized void update(DocumentSymbolModel symbolModel) {
+      if (update(root, symbolModel.getRoots())) {
+        ApplicationUtils.invokeLater(() -> {
+          if (!Disposer.isDisposed(this)) {
+            fireModelUpdate();
+          }
+        });
+      }
+    }
+
+    /**
+     * @return Whether the children of the given element changed
+     */
+    private boolean update(LSPStructureViewElement parent, List<DocumentSymbolModel.Symbol> symbols) {
+      Map<String, LSPStructureViewElement> existing = new HashMap<>();
+      for (TreeElement child : parent.children) {
+        existing.put(((LSPStructureViewElement) child).key, (LSPStructureViewElement) child);
+      }
+      boolean changed = symbols.size() != parent.children.size();
+      Map<String, Integer> occurrences = new HashMap<>();
+      List<TreeElement> newChildren = new ArrayList<>(symbols.size());
+      for (DocumentSymbolModel.Symbol symbol : symbols) {
+        String key = parent.key + "/" + symbol.getKind() + ":" + symbol.getName();
+        // symbols with the same kind and name (e.g. overloads) are told apart by their order
+        int occurrence = occurrences.merge(key, 1, Integer::sum) - 1;
+        if (occurrence > 0) {
+          key = key + "#" + occurrence;
+        }
+        LSPPsiSymbol psiSymbol = symbol.toPsiElement(psiFile.getProject(), psiFile);
+        LSPStructureViewElement element = existing.get(key);
+        if (element == null) {
+          element = new LSPStructureViewElement(key, psiSymbol);
+          changed = true;
+        } else {
+          // same symbol, only the offsets may have moved
+          element.navigatablePsiElement = psiSymbol;
+          changed = changed || parent.children.get(newChildren.size()) != element;
+        }
+        changed |= update(element, symbol.getChildren());
+        newChildren.add(element);
+      }
+      if (changed) {
+        parent.children = newChildren;
+      }
+      return changed;
     }
 
     @Override
@@ -191,7 +223,8 @@ public final class LSPStructureViewFactory implements PsiStructureViewFactory {
 
     @Override
     public boolean isAlwaysLeaf(StructureViewTreeElement element) {
-      return element.getValue() instanceof LSPPsiSymbol;
+      return element instanceof LSPStructureViewElement && element.getValue() instanceof LSPPsiSymbol
+              && ((LSPStructureViewElement) element).children.isEmpty();
     }
 
   }
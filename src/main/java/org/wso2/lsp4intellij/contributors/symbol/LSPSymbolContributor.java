@@ -41,16 +41,18 @@ public final class LSPSymbolContributor implements ChooseByNameContributorEx {
         String queryString = Optional.ofNullable(globalSearchScope.getProject())
             .map(p -> p.getUserData(ChooseByNamePopup.CURRENT_SEARCH_PATTERN)).orElse("");
 
-        workspaceSymbolProvider.workspaceSymbols(queryString, globalSearchScope.getProject()).stream()
-            .filter(ni -> globalSearchScope.accept(ni.getFile()))
-            .map(NavigationItem::getName)
-            .forEach(processor::process);
+        // names are passed on as soon as each server answers
+        workspaceSymbolProvider.workspaceSymbols(queryString, globalSearchScope.getProject(),
+            ni -> !globalSearchScope.accept(ni.getFile()) || processor.process(ni.getName()));
     }
 
     @Override
     public void processElementsWithName(@NotNull String s, @NotNull Processor<? super NavigationItem> processor, @NotNull FindSymbolParameters findSymbolParameters) {
-        workspaceSymbolProvider.workspaceSymbols(s, findSymbolParameters.getProject()).stream()
-            .filter(ni -> findSymbolParameters.getSearchScope().accept(ni.getFile()))
-            .forEach(processor::process);
+        Processor<LSPNavigationItem> scopeProcessor =
+            ni -> !findSymbolParameters.getSearchScope().accept(ni.getFile()) || processor.process(ni);
+        // the items of the names reported by processNames come from the result of the same query
+        if (!workspaceSymbolProvider.processCachedSymbols(s, findSymbolParameters.getProject(), scopeProcessor)) {
+            workspaceSymbolProvider.workspaceSymbols(s, findSymbolParameters.getProject(), scopeProcessor);
+        }
     }
 }
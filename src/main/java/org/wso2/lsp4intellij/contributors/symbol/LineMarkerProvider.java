@@ -4,12 +4,10 @@ import com.intellij.codeInsight.daemon.RelatedItemLineMarkerInfo;
 import com.intellij.codeInsight.daemon.RelatedItemLineMarkerProvider;
 import com.intellij.codeInsight.navigation.NavigationGutterIconBuilder;
 import com.intellij.icons.AllIcons;
-import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.editor.Editor;
-import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -19,19 +17,24 @@ import com.intellij.psi.PsiManager;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.jetbrains.annotations.NotNull;
-import org.wso2.lsp4intellij.IntellijLanguageClient;
 import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager;
 import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
 import org.wso2.lsp4intellij.contributors.psi.LSPPsiElement;
 import org.wso2.lsp4intellij.contributors.psi.LSPPsiSymbol;
+import org.wso2.lsp4intellij.editor.EditorEventManager;
+import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
 import org.wso2.lsp4intellij.requests.Timeout;
 import org.wso2.lsp4intellij.requests.Timeouts;
 import org.wso2.lsp4intellij.utils.DocumentUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
+import org.wso2.lsp4intellij.utils.LRUCache;
 
+import java.util.List;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -51,6 +54,15 @@ public class LineMarkerProvider extends RelatedItemLineMarkerProvider {
 
   private static Logger LOG = Logger.getInstance(LineMarkerProvider.class);
 
+  // maximum number of implementation requests in flight for a single file
+  private static final int MAX_PARALLEL_REQUESTS = 8;
+  private static final int CACHED_FILES = 32;
+  // the waits are split into slices of this many milliseconds, checking for cancellation in between
+  private static final long POLL_INTERVAL = 50;
+
+  // implementations of the symbols of the last seen version of each file
+  private static final LRUCache<String, FileImplementations> implementationCache = new LRUCache<>(CACHED_FILES);
+
 
   @Override
   protected void collectNavigationMarkers(@NotNull PsiElement element,
@@ -72,133 +84,228 @@ public class LineMarkerProvider extends RelatedItemLineMarkerProvider {
       return;
     }
 
-    // load data from server
-    final Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(FileUtils.projectToUri(element.getProject()));
-    final Optional<LanguageServerWrapper> wrapperOpt = wrappers.stream().findFirst();
-    if (!wrapperOpt.isPresent()) {
+    // load data from the server which is connected to this document
+    final String uri = FileUtils.uriFromVirtualFile(virtualFile);
+    final EditorEventManager manager = EditorEventManagerBase.forUri(uri);
+    if (manager == null) {
       return;
     }
-    final LanguageServerWrapper wrapper = wrapperOpt.get();
-    final TextDocumentIdentifier textDocument = new TextDocumentIdentifier(FileUtils.uriFromVirtualFile(virtualFile));
+    final LanguageServerWrapper wrapper = manager.wrapper;
+    final TextDocumentIdentifier textDocument = new TextDocumentIdentifier(uri);
     final RequestManager requestManager = wrapper.getRequestManager();
     if(requestManager == null){
       return;   // not connected
     }
-    final CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> listCompletableFuture = requestManager.documentSymbol(new DocumentSymbolParams(textDocument));
-
-    if(listCompletableFuture == null){
+    final Project project = element.getProject();
+    final DocumentSymbolModel symbolModel = DocumentSymbolService.getInstance(project).getSymbols(uri);
+    if (symbolModel == null) {
       return;
     }
+    final long modificationStamp = symbolModel.getModificationStamp();
 
-    List<Either<SymbolInformation, DocumentSymbol>> eithers;
-    try {
-      eithers = listCompletableFuture.get(Timeout.getTimeout(Timeouts.SYMBOLS), TimeUnit.MILLISECONDS);
-      wrapper.notifySuccess(Timeouts.SYMBOLS);
-    }catch (InterruptedException | ExecutionException | TimeoutException e) {
-      wrapper.notifyFailure(Timeouts.SYMBOLS);
-      return;
+    List<SymbolEntry> symbols = new ArrayList<>();
+    for (DocumentSymbolModel.Symbol symbol : symbolModel.getAllSymbols()) {
+      final SymbolKind kind = symbol.getKind();
+      if (kind != SymbolKind.Method && kind != SymbolKind.Constructor && kind != SymbolKind.Class && kind != SymbolKind.Interface) {
+        continue;
+      }
+      symbols.add(new SymbolEntry(symbol.toPsiElement(project, containingFile), symbol.getSelectionRange().getStart()));
     }
 
-    if(eithers == null){
-      return;
+    // symbols in the visible part of the editor are asked for first
+    final TextRange visibleRange = manager.getVisibleRange();
+    if (visibleRange != null) {
+      symbols.sort(Comparator.comparing(symbol -> !visibleRange.intersects(symbol.symbol.getTextRange())));
     }
 
-    final Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
-    if (document == null){
-      return;
-    }
-    final Optional<@NotNull Editor> foundEditor = Arrays.stream(EditorFactory.getInstance().getEditors(document, element.getProject())).findFirst();
-    if (!foundEditor.isPresent()) {
-      return;
+    FileImplementations implementations = implementationCache.get(uri);
+    if (implementations == null || implementations.modificationStamp != modificationStamp) {
+      implementations = new FileImplementations(modificationStamp);
+      implementationCache.put(uri, implementations);
     }
-    Editor editor = foundEditor.get();
+    final FileImplementations cache = implementations;
 
-    final Project project = element.getProject();
-    for (Either<SymbolInformation, DocumentSymbol> either : eithers) {
-      LSPPsiSymbol lspPsiSymbol;
-      final Position startPos;
-      if (either.isLeft()) {
-        final SymbolInformation symbolInfo = either.getLeft();
-        if (symbolInfo.getKind() != SymbolKind.Method && symbolInfo.getKind() != SymbolKind.Constructor && symbolInfo.getKind() != SymbolKind.Class && symbolInfo.getKind() != SymbolKind.Interface) {
+    // get subtypes, with a bounded number of requests in flight
+    final int timeout = Timeout.getTimeout(Timeouts.IMPLEMENTATION);
+    final Semaphore permits = new Semaphore(MAX_PARALLEL_REQUESTS);
+    final Map<SymbolEntry, CompletableFuture<List<Location>>> requests = new LinkedHashMap<>();
+    try {
+      for (SymbolEntry symbol : symbols) {
+        if (cache.locations.containsKey(symbol.key())) {
           continue;
         }
-        startPos = symbolInfo.getLocation().getRange().getStart();
-        final int start = DocumentUtils.LSPPosToOffset(editor, startPos);
-        final int end = DocumentUtils.LSPPosToOffset(editor, symbolInfo.getLocation().getRange().getEnd());
-        if (start < 0 || end < 0) {
-          continue;
+        if (!acquire(permits, System.currentTimeMillis() + timeout)) {
+          wrapper.notifyFailure(Timeouts.IMPLEMENTATION);
+          break;
         }
-        lspPsiSymbol = new LSPPsiSymbol(symbolInfo.getKind(), symbolInfo.getName(), project, start, end, containingFile);
-      } else if (either.isRight()) {
-        final DocumentSymbol docSymbol = either.getRight();
-        if (docSymbol.getKind() != SymbolKind.Method && docSymbol.getKind() != SymbolKind.Constructor && docSymbol.getKind() != SymbolKind.Class && docSymbol.getKind() != SymbolKind.Interface) {
-          continue;
+        final CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> implementation = requestManager.implementation(new ImplementationParams(textDocument, symbol.position));
+        if (implementation == null) {
+          permits.release();
+          break;
         }
-        startPos = docSymbol.getRange().getStart();
-        final int start = DocumentUtils.LSPPosToOffset(editor, startPos);
-        final int end = DocumentUtils.LSPPosToOffset(editor, docSymbol.getRange().getEnd());
-        if (start < 0 || end < 0) {
-          continue;
-        }
-        lspPsiSymbol = new LSPPsiSymbol(docSymbol.getKind(), docSymbol.getName(), project, start, end, containingFile);
-      } else {
-        continue;
+        // results arriving after the line marker pass has been cancelled are still kept for the next pass
+        requests.put(symbol, implementation.whenComplete((r, t) -> permits.release())
+            .thenApply(LineMarkerProvider::toLocations)
+            .whenComplete((locations, t) -> {
+              if (locations != null) {
+                cache.locations.put(symbol.key(), locations);
+              }
+            }));
       }
 
-      // get and apply subtypes
-      try {
-        final CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> implementation = requestManager.implementation(new ImplementationParams(textDocument, startPos));
-        if(implementation == null){
-          return;
+      final long deadline = System.currentTimeMillis() + timeout;
+      for (Map.Entry<SymbolEntry, CompletableFuture<List<Location>>> request : requests.entrySet()) {
+        try {
+          if (await(request.getValue(), deadline)) {
+            wrapper.notifySuccess(Timeouts.IMPLEMENTATION);
+          } else {
+            wrapper.notifyFailure(Timeouts.IMPLEMENTATION);
+          }
+        } catch (ExecutionException e) {
+          LOG.warn(e);
         }
-        final Either<List<? extends Location>, List<? extends LocationLink>> listEither = implementation.get(Timeout.getTimeout(Timeouts.IMPLEMENTATION), TimeUnit.MILLISECONDS);
-        wrapper.notifySuccess(Timeouts.IMPLEMENTATION);
-
-        if (listEither!= null) {
-
-          List<LSPPsiElement> targetElements = new ArrayList<>();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
 
-          if (listEither.isLeft()) {
-            for (Location location : listEither.getLeft()) {
+    for (SymbolEntry symbol : symbols) {
+      final List<Location> locations = cache.locations.get(symbol.key());
+      if (locations == null || locations.isEmpty()) {
+        continue;
+      }
+      List<LSPPsiElement> targetElements = new ArrayList<>();
+      for (Location location : locations) {
+        final LSPPsiElement target = createTarget(location, project);
+        if (target != null) {
+          targetElements.add(target);
+        }
+      }
 
-              // FIXME: get location from the correct editor with file from uri!
-              int start = DocumentUtils.LSPPosToOffset(editor, location.getRange().getStart());
-              int end = DocumentUtils.LSPPosToOffset(editor, location.getRange().getEnd());
-              String targetname;
-              if(start <0 || end < 0){
-                targetname = "go to implementation";
-              }else {
-                targetname = editor.getDocument().getText(new TextRange(start, end));
-              }
+      if(!targetElements.isEmpty()) {
+        NavigationGutterIconBuilder<PsiElement> builder =
+                NavigationGutterIconBuilder.create(AllIcons.Gutter.ImplementedMethod)
+                        .setTargets(targetElements)
+                        .setTooltipText("Navigate to Overriding Method.");
+        final RelatedItemLineMarkerInfo<PsiElement> lineMarkerInfo = builder.createLineMarkerInfo(symbol.symbol);
+        result.add(lineMarkerInfo);
+      }
+    }
 
-              final PsiFile file = PsiManager.getInstance(project).findFile(FileUtils.virtualFileFromURI(location.getUri()));
-              targetElements.add(new LSPPsiElement(targetname, project, start, end, file));
+  }
 
-            }
-          }else if (listEither.isRight()) {
-            for (LocationLink locationLink : listEither.getRight()) {
-              // TODO: implement
-            }
-          }
+  /**
+   * Waits for a permit until the deadline, checking for cancellation of the pass in between.
+   */
+  private static boolean acquire(Semaphore permits, long deadline) throws InterruptedException {
+    while (true) {
+      ProgressManager.checkCanceled();
+      long remaining = deadline - System.currentTimeMillis();
+      if (permits.tryAcquire(Math.max(0, Math.min(POLL_INTERVAL, remaining)), TimeUnit.MILLISECONDS)) {
+        return true;
+      } else if (remaining <= POLL_INTERVAL) {
+        return false;
+      }
+    }
+  }
 
-          if(!targetElements.isEmpty()) {
-            NavigationGutterIconBuilder<PsiElement> builder =
-                    NavigationGutterIconBuilder.create(AllIcons.Gutter.ImplementedMethod)
-                            .setTargets(targetElements)
-                            .setTooltipText("Navigate to Overriding Method.");
-            final RelatedItemLineMarkerInfo<PsiElement> lineMarkerInfo = builder.createLineMarkerInfo(lspPsiSymbol);
-            result.add(lineMarkerInfo);
-          }
+  /**
+   * Waits for the request until the deadline, checking for cancellation of the pass in between.
+   *
+   * @return false if the request has not completed in time
+   */
+  private static boolean await(CompletableFuture<?> request, long deadline)
+      throws InterruptedException, ExecutionException {
+    while (true) {
+      ProgressManager.checkCanceled();
+      long remaining = deadline - System.currentTimeMillis();
+      try {
+        request.get(Math.max(0, Math.min(POLL_INTERVAL, remaining)), TimeUnit.MILLISECONDS);
+        return true;
+      } catch (TimeoutException e) {
+        if (remaining <= POLL_INTERVAL) {
+          return false;
+        }
+      }
+    }
+  }
 
+  private static List<Location> toLocations(Either<List<? extends Location>, List<? extends LocationLink>> listEither) {
+    List<Location> locations = new ArrayList<>();
+    if (listEither == null) {
+      return locations;
+    }
+    if (listEither.isLeft() && listEither.getLeft() != null) {
+      for (Location location : listEither.getLeft()) {
+        if (location != null && location.getRange() != null) {
+          locations.add(location);
         }
+      }
+    } else if (listEither.isRight() && listEither.getRight() != null) {
+      for (LocationLink locationLink : listEither.getRight()) {
+        Range target = locationLink.getTargetSelectionRange() != null ? locationLink.getTargetSelectionRange() : locationLink.getTargetRange();
+        if (target != null) {
+          locations.add(new Location(locationLink.getTargetUri(), target));
+        }
+      }
+    }
+    return locations;
+  }
 
-      } catch (InterruptedException | TimeoutException | ExecutionException e) {
-        wrapper.notifyFailure(Timeouts.IMPLEMENTATION);
-        e.printStackTrace();
+  private static LSPPsiElement createTarget(Location location, Project project) {
+    final VirtualFile targetFile = FileUtils.virtualFileFromURI(location.getUri());
+    if (targetFile == null) {
+      return null;
+    }
+    final PsiFile file = PsiManager.getInstance(project).findFile(targetFile);
+    // offsets are taken from the editor of the target file if it is opened, as it takes tabs into account
+    final EditorEventManager targetManager = EditorEventManagerBase.forUri(FileUtils.sanitizeURI(location.getUri()));
+    final int start;
+    final int end;
+    final Document targetDocument;
+    if (targetManager != null) {
+      targetDocument = targetManager.editor.getDocument();
+      start = DocumentUtils.LSPPosToOffset(targetManager.editor, location.getRange().getStart());
+      end = DocumentUtils.LSPPosToOffset(targetManager.editor, location.getRange().getEnd());
+    } else {
+      targetDocument = FileDocumentManager.getInstance().getDocument(targetFile);
+      if (targetDocument == null) {
+        return null;
       }
+      start = DocumentUtils.LSPPosToOffset(targetDocument, location.getRange().getStart());
+      end = DocumentUtils.LSPPosToOffset(targetDocument, location.getRange().getEnd());
+    }
+    String targetname;
+    if(start < 0 || end < 0 || start >= end){
+      targetname = "go to implementation";
+    }else {
+      targetname = targetDocument.getText(new TextRange(start, end));
+    }
+    return new LSPPsiElement(targetname, project, Math.max(start, 0), Math.max(end, 0), file);
+  }
+
+  private static class SymbolEntry {
+    private final LSPPsiSymbol symbol;
+    private final Position position;
 
+    SymbolEntry(LSPPsiSymbol symbol, Position position) {
+      this.symbol = symbol;
+      this.position = position;
     }
 
+    String key() {
+      return symbol.getKind() + ":" + symbol.getName() + ":" + symbol.getTextOffset();
+    }
+  }
+
+  private static class FileImplementations {
+    private final long modificationStamp;
+    private final Map<String, List<Location>> locations = new ConcurrentHashMap<>();
+
+    FileImplementations(long modificationStamp) {
+      this.modificationStamp = modificationStamp;
+    }
   }
 
 }
@@ -0,0 +1,670 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.contributors.symbol;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.SymbolKind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.wso2.lsp4intellij.utils.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A client side index of the workspace symbols of a project, fed from the workspace/symbol and documentSymbol
+ * responses of the language servers, so that symbol searches can be answered locally while the servers are asked.
+ * <p>
+ * The index is persisted as an append-only log of per file records in a memory-mapped file under the IDE system
+ * directory. The log is replayed into an in-memory prefix map (sorted by lower case name) and an in-memory trigram
+ * index of the names when the project opens, and every update appends a record for the changed file only. Once the log has doubled in size since it was last
+ * compacted, it is rewritten in place with the latest record of each file.
+ */
+@Service
+public final class WorkspaceSymbolIndex implements Disposable {
+
+  private static final Logger LOG = Logger.getInstance(WorkspaceSymbolIndex.class);
+
+  private static final int MAGIC = 0x4C535049;
+  private static final int FORMAT_VERSION = 1;
+  // magic, format version and the end offset of the records
+  private static final int HEADER_SIZE = 12;
+  private static final int END_OFFSET_POSITION = 8;
+  private static final int INITIAL_CAPACITY = 1 << 20;
+
+  private static final byte FILE_SYMBOLS = 1;
+  private static final byte FILE_REMOVED = 2;
+  private static final byte FILE_STALE = 3;
+
+  private final Path indexPath;
+  private final Map<String, FileSymbols> files = new HashMap<>();
+  private final TreeMap<String, List<IndexedSymbol>> names = new TreeMap<>();
+  // the lower case names containing each trigram, used to find the names containing a query without a full scan
+  private final Map<Long, Set<String>> trigrams = new HashMap<>();
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int endOffset;
+  // size of the log after it was last compacted (or loaded)
+  private int compactedSize;
+  private boolean loaded;
+
+  public WorkspaceSymbolIndex(Project project) {
+    indexPath = Paths.get(PathManager.getSystemPath(), "lsp4intellij", "symbols", project.getLocationHash() + ".idx");
+  }
+
+  public static WorkspaceSymbolIndex getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, WorkspaceSymbolIndex.class);
+  }
+
+  /**
+   * Forwards a watched file event of the given project to its index.
+   */
+  public static void fileChanged(String projectUri, String uri, FileChangeType type) {
+    for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+      if (!project.isDisposed() && FileUtils.projectToUri(project).equals(projectUri)) {
+        WorkspaceSymbolIndex index = getInstance(project);
+        if (type == FileChangeType.Deleted) {
+          index.removeFile(uri);
+        } else {
+          index.markStale(uri);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the indexed symbols matching the given query, the symbols whose name starts with the query first.
+   *
+   * @param query The query, matched case insensitively as a prefix of the name, or as a substring of it if the query
+   *              has at least three characters. Other fuzzy matches are left to the language servers.
+   * @param limit The maximum number of symbols to return
+   */
+  @NotNull
+  public synchronized List<IndexedSymbol> search(@NotNull String query, int limit) {
+    ensureLoaded();
+    List<IndexedSymbol> result = new ArrayList<>();
+    if (query.isEmpty()) {
+      return result;
+    }
+    String prefix = query.toLowerCase();
+    NavigableMap<String, List<IndexedSymbol>> prefixMatches = names.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+    for (List<IndexedSymbol> symbols : prefixMatches.values()) {
+      for (IndexedSymbol symbol : symbols) {
+        if (result.size() >= limit) {
+          return result;
+        }
+        result.add(symbol);
+      }
+    }
+    for (String name : substringMatches(prefix)) {
+      for (IndexedSymbol symbol : names.get(name)) {
+        if (result.size() >= limit) {
+          return result;
+        }
+        result.add(symbol);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the sorted lower case names which contain the given query but do not start with it, looking up only the
+   * names sharing the least common trigram of the query.
+   */
+  private List<String> substringMatches(String lowerCaseQuery) {
+    if (lowerCaseQuery.length() < 3) {
+      return Collections.emptyList();
+    }
+    Set<String> candidates = null;
+    for (int i = 0; i + 3 <= lowerCaseQuery.length(); i++) {
+      Set<String> posting = trigrams.get(trigram(lowerCaseQuery, i));
+      if (posting == null) {
+        return Collections.emptyList();
+      }
+      if (candidates == null || posting.size() < candidates.size()) {
+        candidates = posting;
+      }
+    }
+    List<String> matches = new ArrayList<>();
+    for (String name : candidates) {
+      if (!name.startsWith(lowerCaseQuery) && name.contains(lowerCaseQuery)) {
+        matches.add(name);
+      }
+    }
+    Collections.sort(matches);
+    return matches;
+  }
+
+  private static long trigram(String s, int index) {
+    return ((long) s.charAt(index) << 32) | ((long) s.charAt(index + 1) << 16) | s.charAt(index + 2);
+  }
+
+  /**
+   * Replaces the symbols of a file with the symbols of its current version.
+   *
+   * @param uri     The file uri
+   * @param ext     The extension of the server definition which provided the symbols
+   * @param symbols The symbols of the file
+   */
+  public synchronized void updateFile(@NotNull String uri, @NotNull String ext, @NotNull List<DocumentSymbolModel.Symbol> symbols) {
+    ensureLoaded();
+    List<IndexedSymbol> indexed = new ArrayList<>(symbols.size());
+    for (DocumentSymbolModel.Symbol symbol : symbols) {
+      Position start = symbol.getSelectionRange().getStart();
+      indexed.add(new IndexedSymbol(uri, ext, symbol.getName(), symbol.getParent() != null ? symbol.getParent().getName() : null,
+          symbol.getKind().getValue(), start.getLine(), start.getCharacter()));
+    }
+    FileSymbols current = files.get(uri);
+    if (current != null && current.complete && current.symbols.equals(indexed)) {
+      return;
+    }
+    apply(new FileSymbols(uri, ext, true, indexed));
+  }
+
+  /**
+   * Adds the symbols of a workspace/symbol response. They only complete files which were not indexed from their
+   * document symbols, or which changed since.
+   * <p>
+   * If the response is complete, the indexed symbols of those files which start with the query but are no longer
+   * reported by the server (e.g. deleted or renamed since) are dropped.
+   *
+   * @param ext      The extension of the server definition which provided the symbols
+   * @param query    The query of the response
+   * @param symbols  The workspace symbols
+   * @param complete True if the server did not truncate the response
+   * @return The indexed symbols which were dropped
+   */
+  @NotNull
+  public synchronized Set<IndexedSymbol> addWorkspaceSymbols(@NotNull String ext, @NotNull String query,
+                                                             @NotNull List<? extends SymbolInformation> symbols,
+                                                             boolean complete) {
+    ensureLoaded();
+    Map<String, List<IndexedSymbol>> byFile = new LinkedHashMap<>();
+    for (SymbolInformation information : symbols) {
+      if (information == null || information.getLocation() == null || information.getLocation().getRange() == null) {
+        continue;
+      }
+      String uri = FileUtils.sanitizeURI(information.getLocation().getUri());
+      Position start = information.getLocation().getRange().getStart();
+      byFile.computeIfAbsent(uri, k -> new ArrayList<>()).add(new IndexedSymbol(uri, ext, information.getName(),
+          information.getContainerName(), information.getKind().getValue(), start.getLine(), start.getCharacter()));
+    }
+    byFile.forEach((uri, fileSymbols) -> {
+      FileSymbols current = files.get(uri);
+      if (current != null && current.complete) {
+        return;
+      }
+      List<IndexedSymbol> merged = current != null ? new ArrayList<>(current.symbols) : new ArrayList<>();
+      boolean changed = false;
+      for (IndexedSymbol symbol : fileSymbols) {
+        if (!merged.contains(symbol)) {
+          merged.add(symbol);
+          changed = true;
+        }
+      }
+      if (changed) {
+        apply(new FileSymbols(uri, ext, false, merged));
+      }
+    });
+    if (!complete || query.isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<IndexedSymbol> reported = new HashSet<>();
+    byFile.values().forEach(reported::addAll);
+    Set<IndexedSymbol> dropped = new HashSet<>();
+    String prefix = query.toLowerCase();
+    for (List<IndexedSymbol> indexed : names.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+      for (IndexedSymbol symbol : indexed) {
+        FileSymbols file = files.get(symbol.uri);
+        // the symbols of a file indexed from its current document symbols are up to date
+        if (symbol.ext.equals(ext) && file != null && !file.complete && !reported.contains(symbol)) {
+          dropped.add(symbol);
+        }
+      }
+    }
+    Set<String> droppedFiles = new HashSet<>();
+    dropped.forEach(symbol -> droppedFiles.add(symbol.uri));
+    for (String uri : droppedFiles) {
+      FileSymbols current = files.get(uri);
+      List<IndexedSymbol> remaining = new ArrayList<>(current.symbols);
+      remaining.removeAll(dropped);
+      if (remaining.isEmpty()) {
+        removeFile(uri);
+      } else {
+        apply(new FileSymbols(uri, current.ext, false, remaining));
+      }
+    }
+    return dropped;
+  }
+
+  public synchronized void removeFile(@NotNull String uri) {
+    ensureLoaded();
+    if (files.containsKey(uri)) {
+      removeNames(files.remove(uri));
+      append(FILE_REMOVED, uri, null);
+    }
+  }
+
+  /**
+   * Keeps the symbols of a file which changed outside of an editor, but lets workspace symbol results update or drop
+   * them.
+   */
+  public synchronized void markStale(@NotNull String uri) {
+    ensureLoaded();
+    FileSymbols current = files.get(uri);
+    if (current != null && current.complete) {
+      current.complete = false;
+      append(FILE_STALE, uri, null);
+    }
+  }
+
+  private void apply(FileSymbols fileSymbols) {
+    FileSymbols previous = files.put(fileSymbols.uri, fileSymbols);
+    if (previous != null) {
+      removeNames(previous);
+    }
+    addNames(fileSymbols);
+    append(FILE_SYMBOLS, fileSymbols.uri, fileSymbols);
+  }
+
+  private void addNames(FileSymbols fileSymbols) {
+    for (IndexedSymbol symbol : fileSymbols.symbols) {
+      String key = symbol.name.toLowerCase();
+      List<IndexedSymbol> symbols = names.get(key);
+      if (symbols == null) {
+        symbols = new ArrayList<>();
+        names.put(key, symbols);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+          trigrams.computeIfAbsent(trigram(key, i), k -> new HashSet<>()).add(key);
+        }
+      }
+      symbols.add(symbol);
+    }
+  }
+
+  private void removeNames(FileSymbols fileSymbols) {
+    for (IndexedSymbol symbol : fileSymbols.symbols) {
+      String key = symbol.name.toLowerCase();
+      List<IndexedSymbol> symbols = names.get(key);
+      if (symbols != null) {
+        symbols.removeIf(s -> s.uri.equals(fileSymbols.uri));
+        if (symbols.isEmpty()) {
+          names.remove(key);
+          for (int i = 0; i + 3 <= key.length(); i++) {
+            long trigram = trigram(key, i);
+            Set<String> posting = trigrams.get(trigram);
+            if (posting != null && posting.remove(key) && posting.isEmpty()) {
+              trigrams.remove(trigram);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Case insensitive subsequence match of a lower case query.
+   */
+  static boolean matches(String name, String lowerCaseQuery) {
+    int index = 0;
+    for (int i = 0; i < lowerCaseQuery.length(); i++) {
+      char c = lowerCaseQuery.charAt(i);
+      while (index < name.length() && Character.toLowerCase(name.charAt(index)) != c) {
+        index++;
+      }
+      if (index == name.length()) {
+        return false;
+      }
+      index++;
+    }
+    return true;
+  }
+
+  // ---------------------------------------------------------------------------------------------------------------
+  // Persistence
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    try {
+      Files.createDirectories(indexPath.getParent());
+      compactIfNeeded();
+      channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      long size = channel.size();
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+      if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+        writeHeader();
+      } else {
+        endOffset = replay(buffer, files);
+        buffer.putInt(END_OFFSET_POSITION, endOffset);
+        files.values().forEach(this::addNames);
+      }
+      compactedSize = endOffset;
+    } catch (IOException | RuntimeException e) {
+      // the index keeps working in memory only
+      LOG.warn("Unable to open the workspace symbol index " + indexPath, e);
+      closeChannel();
+    }
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, FORMAT_VERSION);
+    endOffset = HEADER_SIZE;
+    buffer.putInt(END_OFFSET_POSITION, endOffset);
+  }
+
+  /**
+   * Replays the records of the given log into the given files.
+   *
+   * @return The end of the last valid record
+   */
+  private static int replay(ByteBuffer log, Map<String, FileSymbols> files) {
+    int end = Math.min(log.getInt(END_OFFSET_POSITION), log.limit());
+    int offset = HEADER_SIZE;
+    while (offset + 4 < end) {
+      int length = log.getInt(offset);
+      if (length <= 0 || offset + 4 + length > end) {
+        break;
+      }
+      byte[] record = new byte[length];
+      ByteBuffer slice = log.duplicate();
+      slice.position(offset + 4);
+      slice.get(record);
+      try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+        byte type = in.readByte();
+        String uri = in.readUTF();
+        if (type == FILE_SYMBOLS) {
+          String ext = in.readUTF();
+          boolean complete = in.readBoolean();
+          int count = in.readInt();
+          List<IndexedSymbol> symbols = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            String container = in.readUTF();
+            symbols.add(new IndexedSymbol(uri, ext, name, container.isEmpty() ? null : container, in.readInt(),
+                in.readInt(), in.readInt()));
+          }
+          files.put(uri, new FileSymbols(uri, ext, complete, symbols));
+        } else if (type == FILE_REMOVED) {
+          files.remove(uri);
+        } else if (type == FILE_STALE) {
+          FileSymbols fileSymbols = files.get(uri);
+          if (fileSymbols != null) {
+            fileSymbols.complete = false;
+          }
+        }
+      } catch (IOException e) {
+        break;
+      }
+      offset += 4 + length;
+    }
+    return offset;
+  }
+
+  private void append(byte type, String uri, @Nullable FileSymbols fileSymbols) {
+    if (buffer == null) {
+      return;
+    }
+    byte[] record;
+    try {
+      record = serialize(type, uri, fileSymbols);
+    } catch (IOException e) {
+      // e.g. a name longer than the UTF limit of the format, which is only kept in memory
+      LOG.warn("Unable to persist the symbols of " + uri, e);
+      return;
+    }
+    try {
+      int required = endOffset + 4 + record.length;
+      if (required > buffer.capacity()) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max((long) buffer.capacity() * 2, required));
+      }
+      buffer.putInt(endOffset, record.length);
+      ByteBuffer target = buffer.duplicate();
+      target.position(endOffset + 4);
+      target.put(record);
+      endOffset = required;
+      // the end offset is written last, a partially written record is never replayed
+      buffer.putInt(END_OFFSET_POSITION, endOffset);
+      if (endOffset > Math.max(INITIAL_CAPACITY, 2L * compactedSize)) {
+        compactInPlace();
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to write the workspace symbol index " + indexPath, e);
+      closeChannel();
+    }
+  }
+
+  /**
+   * Rewrites the mapped log with the latest record of each file. The log is first marked as empty, hence a crash
+   * while rewriting it only loses the index, which is filled again from the server responses.
+   */
+  private void compactInPlace() {
+    List<byte[]> records = new ArrayList<>(files.size());
+    for (FileSymbols fileSymbols : files.values()) {
+      try {
+        records.add(serialize(FILE_SYMBOLS, fileSymbols.uri, fileSymbols));
+      } catch (IOException e) {
+        // not persisted in the first place
+        LOG.debug(e);
+      }
+    }
+    buffer.putInt(END_OFFSET_POSITION, HEADER_SIZE);
+    int offset = HEADER_SIZE;
+    for (byte[] record : records) {
+      buffer.putInt(offset, record.length);
+      ByteBuffer target = buffer.duplicate();
+      target.position(offset + 4);
+      target.put(record);
+      offset += 4 + record.length;
+    }
+    endOffset = offset;
+    compactedSize = offset;
+    buffer.putInt(END_OFFSET_POSITION, endOffset);
+  }
+
+  private static byte[] serialize(byte type, String uri, @Nullable FileSymbols fileSymbols) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(type);
+      out.writeUTF(uri);
+      if (type == FILE_SYMBOLS && fileSymbols != null) {
+        out.writeUTF(fileSymbols.ext);
+        out.writeBoolean(fileSymbols.complete);
+        out.writeInt(fileSymbols.symbols.size());
+        for (IndexedSymbol symbol : fileSymbols.symbols) {
+          out.writeUTF(symbol.name);
+          out.writeUTF(symbol.containerName != null ? symbol.containerName : "");
+          out.writeInt(symbol.kind);
+          out.writeInt(symbol.line);
+          out.writeInt(symbol.character);
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Rewrites the log with only the latest record of each file, if most of it is outdated. Done before the log is
+   * mapped, as a mapped file cannot be replaced on every platform, which also shrinks the file unlike
+   * {@link #compactInPlace()}.
+   */
+  private void compactIfNeeded() throws IOException {
+    if (!Files.exists(indexPath) || Files.size(indexPath) < INITIAL_CAPACITY) {
+      return;
+    }
+    ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+    if (log.getInt(0) != MAGIC || log.getInt(4) != FORMAT_VERSION) {
+      return;
+    }
+    Map<String, FileSymbols> live = new HashMap<>();
+    int used = replay(log, live);
+    ByteArrayOutputStream compacted = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(compacted);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(0);
+    for (FileSymbols fileSymbols : live.values()) {
+      byte[] record = serialize(FILE_SYMBOLS, fileSymbols.uri, fileSymbols);
+      out.writeInt(record.length);
+      out.write(record);
+    }
+    out.flush();
+    if (compacted.size() * 2 > used) {
+      return;
+    }
+    byte[] content = compacted.toByteArray();
+    ByteBuffer.wrap(content).putInt(END_OFFSET_POSITION, content.length);
+    Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+    Files.write(temp, content);
+    try {
+      Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private void closeChannel() {
+    buffer = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn(e);
+      }
+      channel = null;
+    }
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (buffer != null) {
+      buffer.force();
+    }
+    closeChannel();
+  }
+
+  private static class FileSymbols {
+    private final String uri;
+    private final String ext;
+    private boolean complete;
+    private final List<IndexedSymbol> symbols;
+
+    FileSymbols(String uri, String ext, boolean complete, List<IndexedSymbol> symbols) {
+      this.uri = uri;
+      this.ext = ext;
+      this.complete = complete;
+      this.symbols = Collections.unmodifiableList(symbols);
+    }
+  }
+
+  /**
+   * A symbol of the index.
+   */
+  public static final class IndexedSymbol {
+    private final String uri;
+    private final String ext;
+    private final String name;
+    private final String containerName;
+    private final int kind;
+    private final int line;
+    private final int character;
+
+    IndexedSymbol(String uri, String ext, String name, @Nullable String containerName, int kind, int line, int character) {
+      this.uri = uri;
+      this.ext = ext;
+      this.name = name;
+      this.containerName = containerName;
+      this.kind = kind;
+      this.line = line;
+      this.character = character;
+    }
+
+    public String getUri() {
+      return uri;
+    }
+
+    /**
+     * @return The extension of the server definition which reported the symbol
+     */
+    public String getExt() {
+      return ext;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public SymbolInformation toSymbolInformation() {
+      Position position = new Position(line, character);
+      return new SymbolInformation(name, SymbolKind.forValue(kind), new Location(uri, new Range(position, position)),
+          containerName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof IndexedSymbol)) {
+        return false;
+      }
+      IndexedSymbol other = (IndexedSymbol) o;
+      return kind == other.kind && line == other.line && character == other.character && name.equals(other.name)
+          && uri.equals(other.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return ((name.hashCode() * 31 + line) * 31 + character) * 31 + kind;
+    }
+  }
+}
@@ -17,9 +17,13 @@ package org.wso2.lsp4intellij.contributors.symbol;
 
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Processor;
 import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.SymbolInformation;
 import org.eclipse.lsp4j.WorkspaceSymbolParams;
 import org.wso2.lsp4intellij.IntellijLanguageClient;
@@ -34,16 +38,19 @@ import org.wso2.lsp4intellij.requests.Timeouts;
 import org.wso2.lsp4intellij.utils.FileUtils;
 import org.wso2.lsp4intellij.utils.GUIUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The workspace symbole provider implementation based on LSP
@@ -54,15 +61,186 @@ public class WorkspaceSymbolProvider {
 
   private static final Logger LOG = Logger.getInstance(WorkspaceSymbolProvider.class);
 
+  // how long the result of a query is reused for the items of the same query or for narrower queries
+  private static final long RESULT_REUSE_MILLIS = 5000;
+  // results of this size may have been truncated by the server, hence are not narrowed locally
+  private static final int MAX_REUSABLE_RESULTS = 100;
+  private static final long POLL_MILLIS = 50;
+  private static final int MAX_INDEXED_RESULTS = 500;
+
+  private volatile QueryResult lastResult;
+
   public List<LSPNavigationItem> workspaceSymbols(String name, Project project) {
+    List<LSPNavigationItem> result = new ArrayList<>();
+    workspaceSymbols(name, project, result::add);
+    return result;
+  }
+
+  /**
+   * Queries the workspace symbols of all the initialized servers of the project at once, and passes the items to
+   * the given processor as soon as each server answers.
+   *
+   * @param name      The query
+   * @param project   The project
+   * @param processor The item processor, returning false to stop the query
+   */
+  public void workspaceSymbols(String name, Project project, Processor<? super LSPNavigationItem> processor) {
+    final QueryResult previous = lastResult;
+    if (previous != null && previous.canAnswer(name, project)) {
+      for (LSPNavigationItem item : previous.items) {
+        if (matches(item.getName(), name) && !processor.process(item)) {
+          return;
+        }
+      }
+      return;
+    }
+
     final Set<LanguageServerWrapper> serverWrappers = ServiceManager.getService(IntellijLanguageClient.class)
             .getProjectToLanguageWrappers()
             .getOrDefault(FileUtils.projectToUri(project), Collections.emptySet());
 
+    // the local index answers right away, the servers then complete and refresh it
+    final WorkspaceSymbolIndex index = WorkspaceSymbolIndex.getInstance(project);
+    final List<LSPNavigationItem> items = new ArrayList<>();
+    final Set<String> reported = new HashSet<>();
+    final Map<WorkspaceSymbolIndex.IndexedSymbol, LSPNavigationItem> indexedItems = new HashMap<>();
+    for (WorkspaceSymbolIndex.IndexedSymbol symbol : index.search(name, MAX_INDEXED_RESULTS)) {
+      final Optional<LanguageServerDefinition> definition = serverWrappers.stream()
+              .map(LanguageServerWrapper::getServerDefinition)
+              .filter(d -> d.ext.equals(symbol.getExt())).findFirst();
+      if (!definition.isPresent()) {
+        continue;
+      }
+      final SymbolInformation information = symbol.toSymbolInformation();
+      final LSPNavigationItem item = createNavigationItem(new LSPSymbolResult(information, definition.get()), project);
+      if (item == null) {
+        continue;
+      }
+      items.add(item);
+      indexedItems.put(symbol, item);
+      reported.add(resultKey(information));
+      if (!processor.process(item)) {
+        lastResult = QueryResult.stopped(project, name, items);
+        return;
+      }
+    }
+
     final WorkspaceSymbolParams symbolParams = new WorkspaceSymbolParams(name);
-    return serverWrappers.stream().filter(s -> s.getStatus() == ServerStatus.INITIALIZED)
-        .flatMap(server -> collectSymbol(server, server.getRequestManager(), symbolParams))
-        .map(s -> createNavigationItem(s, project)).filter(Objects::nonNull).collect(Collectors.toList());
+    final BlockingQueue<ServerResponse> responses = new LinkedBlockingQueue<>();
+    final Map<LanguageServerWrapper, CompletableFuture<List<? extends SymbolInformation>>> pending = new HashMap<>();
+    for (LanguageServerWrapper wrapper : serverWrappers) {
+      final RequestManager requestManager = wrapper.getRequestManager();
+      if (wrapper.getStatus() != ServerStatus.INITIALIZED || requestManager == null) {
+        continue;
+      }
+      final CompletableFuture<List<? extends SymbolInformation>> request = requestManager.symbol(symbolParams);
+      if (request != null) {
+        pending.put(wrapper, request);
+        request.whenComplete((symbols, error) -> responses.add(new ServerResponse(wrapper, symbols, error)));
+      }
+    }
+
+    boolean complete = true;
+    final long deadline = System.currentTimeMillis() + Timeout.getTimeout(Timeouts.WORKSPACESYMBOLS);
+    try {
+      while (!pending.isEmpty()) {
+        ProgressManager.checkCanceled();
+        final long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          pending.forEach((wrapper, request) -> {
+            request.cancel(true);
+            wrapper.notifyFailure(Timeouts.WORKSPACESYMBOLS);
+          });
+          complete = false;
+          break;
+        }
+        final ServerResponse response = responses.poll(Math.min(remaining, POLL_MILLIS), TimeUnit.MILLISECONDS);
+        if (response == null) {
+          continue;
+        }
+        pending.remove(response.wrapper);
+        if (response.error != null) {
+          // an error response of a server which is still running
+          LOG.warn(response.error);
+          response.wrapper.notifyFailure(Timeouts.WORKSPACESYMBOLS);
+          complete = false;
+          continue;
+        }
+        response.wrapper.notifySuccess(Timeouts.WORKSPACESYMBOLS);
+        if (response.symbols == null) {
+          continue;
+        }
+        // the index hits which a complete response no longer returns are dropped, from the index and the result
+        final Set<WorkspaceSymbolIndex.IndexedSymbol> dropped = index.addWorkspaceSymbols(
+                response.wrapper.getServerDefinition().ext, name, response.symbols,
+                response.symbols.size() < MAX_REUSABLE_RESULTS);
+        for (WorkspaceSymbolIndex.IndexedSymbol symbol : dropped) {
+          final LSPNavigationItem ghost = indexedItems.remove(symbol);
+          if (ghost != null) {
+            items.remove(ghost);
+          }
+        }
+        for (SymbolInformation information : response.symbols) {
+          if (information == null || information.getLocation() == null || !reported.add(resultKey(information))) {
+            continue;
+          }
+          final LSPNavigationItem item = createNavigationItem(new LSPSymbolResult(information,
+                  response.wrapper.getServerDefinition()), project);
+          if (item == null) {
+            continue;
+          }
+          items.add(item);
+          if (!processor.process(item)) {
+            pending.values().forEach(request -> request.cancel(true));
+            lastResult = QueryResult.stopped(project, name, items);
+            return;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lastResult = QueryResult.stopped(project, name, items);
+      return;
+    } catch (ProcessCanceledException e) {
+      pending.values().forEach(request -> request.cancel(true));
+      lastResult = QueryResult.stopped(project, name, items);
+      throw e;
+    }
+    lastResult = new QueryResult(project, name, items, complete, false);
+  }
+
+  /**
+   * Passes the items named exactly as given from the latest query result to the processor. Go to Symbol asks for
+   * the items of every name reported by the query, which lets it reuse that query result.
+   *
+   * @return False if the latest result of the project is not recent, was stopped before all the items were
+   * collected, or did not report the name, in which case nothing is processed
+   */
+  public boolean processCachedSymbols(String name, Project project, Processor<? super LSPNavigationItem> processor) {
+    final QueryResult previous = lastResult;
+    if (previous == null || previous.project != project || previous.isExpired() || previous.stopped
+            || !previous.names.contains(name)) {
+      return false;
+    }
+    for (LSPNavigationItem item : previous.items) {
+      if (name.equals(item.getName()) && !processor.process(item)) {
+        break;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Case insensitive subsequence match, which keeps everything a narrower query could be matched with by a server.
+   */
+  private static boolean matches(String name, String query) {
+    return name != null && WorkspaceSymbolIndex.matches(name, query.toLowerCase());
+  }
+
+  private static String resultKey(SymbolInformation information) {
+    final Position start = information.getLocation().getRange().getStart();
+    return FileUtils.sanitizeURI(information.getLocation().getUri()) + ":" + start.getLine() + ":"
+            + start.getCharacter() + ":" + information.getName();
   }
 
   private LSPNavigationItem createNavigationItem(LSPSymbolResult result, Project project) {
@@ -83,33 +261,61 @@ public class WorkspaceSymbolProvider {
     }
   }
 
-  @SuppressWarnings("squid:S2142")
-  private Stream<LSPSymbolResult> collectSymbol(LanguageServerWrapper wrapper,
-      RequestManager requestManager,
-      WorkspaceSymbolParams symbolParams) {
-    final CompletableFuture<List<? extends SymbolInformation>> request = requestManager
-        .symbol(symbolParams);
+  private static class ServerResponse {
 
-    if (request == null) {
-      return Stream.empty();
+    private final LanguageServerWrapper wrapper;
+    private final List<? extends SymbolInformation> symbols;
+    private final Throwable error;
+
+    ServerResponse(LanguageServerWrapper wrapper, List<? extends SymbolInformation> symbols, Throwable error) {
+      this.wrapper = wrapper;
+      this.symbols = symbols;
+      this.error = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
+  }
 
-    try {
-      List<? extends SymbolInformation> symbolInformations = request
-          .get(Timeout.getTimeout(Timeouts.WORKSPACESYMBOLS), TimeUnit.MILLISECONDS);
-      wrapper.notifySuccess(Timeouts.WORKSPACESYMBOLS);
-      if( symbolInformations != null){
-        return symbolInformations.stream()
-                .map(si -> new LSPSymbolResult(si, wrapper.getServerDefinition()));
+  private static class QueryResult {
+
+    private final Project project;
+    private final String query;
+    private final List<LSPNavigationItem> items;
+    private final Set<String> names = new HashSet<>();
+    // all the servers answered in time
+    private final boolean complete;
+    // the processor stopped the query, hence the items are only the ones collected until then
+    private final boolean stopped;
+    private final long timestamp = System.currentTimeMillis();
+
+    QueryResult(Project project, String query, List<LSPNavigationItem> items, boolean complete, boolean stopped) {
+      this.project = project;
+      this.query = query;
+      this.items = items;
+      this.complete = complete;
+      this.stopped = stopped;
+      items.forEach(item -> names.add(item.getName()));
+    }
+
+    /**
+     * The partial result of a stopped query, which still replaces the result of the previous query.
+     */
+    static QueryResult stopped(Project project, String query, List<LSPNavigationItem> items) {
+      return new QueryResult(project, query, items, false, true);
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() - timestamp > RESULT_REUSE_MILLIS;
+    }
+
+    /**
+     * The result answers the same query, and narrower ones if all the servers answered and none of them may have
+     * truncated its result.
+     */
+    boolean canAnswer(String name, Project project) {
+      if (this.project != project || isExpired() || stopped) {
+        return false;
       }
-    } catch (TimeoutException e) {
-      LOG.warn(e);
-      wrapper.notifyFailure(Timeouts.SYMBOLS);
-    } catch (ExecutionException | InterruptedException e) {
-      LOG.warn(e);
-      wrapper.crashed(e);
+      return query.equals(name) || (complete && items.size() < MAX_REUSABLE_RESULTS && name.startsWith(query));
     }
-    return Stream.empty();
   }
 
   private static class LSPSymbolResult {
@@ -21,15 +21,16 @@ import org.eclipse.lsp4j.Location;
 import org.wso2.lsp4intellij.utils.DocumentUtils;
 
 import java.awt.*;
+import java.util.List;
 
 public class CtrlRangeMarker {
 
-    Location location;
+    List<Location> locations;
     private Editor editor;
     private RangeHighlighter range;
 
-    CtrlRangeMarker(Location location, Editor editor, RangeHighlighter range) {
-        this.location = location;
+    CtrlRangeMarker(List<Location> locations, Editor editor, RangeHighlighter range) {
+        this.locations = locations;
         this.editor = editor;
         this.range = range;
 
@@ -44,8 +45,13 @@ public class CtrlRangeMarker {
     }
 
     boolean definitionContainsOffset(int offset) {
-        return DocumentUtils.LSPPosToOffset(editor, location.getRange().getStart()) <= offset && offset <= DocumentUtils
-                .LSPPosToOffset(editor, location.getRange().getEnd());
+        for (Location location : locations) {
+            if (DocumentUtils.LSPPosToOffset(editor, location.getRange().getStart()) <= offset && offset <= DocumentUtils
+                    .LSPPosToOffset(editor, location.getRange().getEnd())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
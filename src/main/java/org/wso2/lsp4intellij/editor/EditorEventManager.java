@@ -19,8 +19,16 @@ import com.intellij.codeInsight.completion.InsertionContext;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.codeInsight.hint.HintManager;
 import com.intellij.codeInsight.lookup.AutoCompletionPolicy;
+import com.intellij.codeInsight.lookup.Lookup;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.codeInsight.lookup.LookupElementPresentation;
+import com.intellij.codeInsight.lookup.LookupElementRenderer;
+import com.intellij.codeInsight.lookup.LookupEvent;
+import com.intellij.codeInsight.lookup.LookupListener;
+import com.intellij.codeInsight.lookup.LookupManager;
+import com.intellij.codeInsight.lookup.impl.LookupImpl;
+import com.intellij.codeInsight.template.Expression;
 import com.intellij.codeInsight.template.TemplateManager;
 import com.intellij.codeInsight.template.impl.TemplateImpl;
 import com.intellij.codeInsight.template.impl.TextExpression;
@@ -29,7 +37,9 @@ import com.intellij.lang.LanguageDocumentation;
 import com.intellij.lang.annotation.Annotation;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.*;
 import com.intellij.openapi.editor.colors.EditorColors;
@@ -41,22 +51,35 @@ import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.fileTypes.PlainTextLanguage;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
 import com.intellij.ui.Hint;
+import com.intellij.ui.SimpleListCellRenderer;
+import com.intellij.usageView.UsageInfo;
+import com.intellij.util.DocumentUtil;
+import com.intellij.util.PathUtil;
+import com.intellij.util.Processor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.JsonRpcException;
+import org.eclipse.lsp4j.jsonrpc.ResponseErrorException;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.messages.Tuple;
 import org.jetbrains.annotations.NotNull;
+import org.wso2.lsp4intellij.IntellijLanguageClient;
 import org.wso2.lsp4intellij.actions.LSPReferencesAction;
 import org.wso2.lsp4intellij.client.languageserver.ServerOptions;
 import org.wso2.lsp4intellij.client.languageserver.requestmanager.RequestManager;
@@ -73,19 +96,27 @@ import org.wso2.lsp4intellij.requests.WorkspaceEditHandler;
 import org.wso2.lsp4intellij.utils.DocumentUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
 import org.wso2.lsp4intellij.utils.GUIUtils;
+import org.wso2.lsp4intellij.utils.LRUCache;
+import org.wso2.lsp4intellij.utils.LSPTextEdit;
+import org.wso2.lsp4intellij.utils.SnippetParser;
 
 import javax.swing.*;
 import java.awt.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.wso2.lsp4intellij.editor.EditorEventManagerBase.*;
 import static org.wso2.lsp4intellij.requests.Timeout.getTimeout;
@@ -125,13 +156,45 @@ public class EditorEventManager {
     private final DidChangeTextDocumentParams changesParams;
     private final TextDocumentSyncKind syncKind;
     private volatile boolean needSave = false;
-    private int version = -1;
+    private volatile Boolean hoverEligible;
+    private volatile int version = -1;
+    private volatile boolean bulkChangePending = false;
     private long predTime = -1L;
     private long ctrlTime = -1L;
     private boolean isOpen = false;
 
     private boolean mouseInEditor = true;
     private Hint currentHint;
+    private volatile Icon[] completionIcons;
+
+    // Rendered hovers of the current document version, and the pending dwell prefetch (if enabled).
+    private final RangeCache<String> hoverCache = new RangeCache<>();
+    // Definitions of the identifiers hovered or clicked with Ctrl, together with the range of the identifier.
+    private final RangeCache<Pair<TextRange, List<Location>>> definitionCache = new RangeCache<>();
+    private ScheduledFuture<?> hoverPrefetch;
+    private TextRange hoverPrefetchRange;
+
+    // Completion items are resolved lazily, only for the item highlighted in the lookup or the one being inserted.
+    private static final int RESOLVED_ITEMS_CACHE_SIZE = 256;
+    private final LRUCache<CompletionItem, CompletionItem> resolvedItems = new LRUCache<>(RESOLVED_ITEMS_CACHE_SIZE);
+    private final Object resolveLock = new Object();
+    private CompletionItem pendingResolveItem;
+    private CompletableFuture<CompletionItem> pendingResolve;
+    private final PropertyChangeListener lookupChangeListener = this::activeLookupChanged;
+    private final VisibleAreaListener visibleAreaListener = e -> updateVisibleRange();
+    // The document range visible in the editor, captured on the EDT so that background passes can read it.
+    private volatile TextRange visibleRange;
+    private final LookupListener lookupItemListener = new LookupListener() {
+        @Override
+        public void currentItemChanged(@NotNull LookupEvent event) {
+            resolveHighlightedItem(event.getLookup(), event.getItem());
+        }
+
+        @Override
+        public void lookupCanceled(@NotNull LookupEvent event) {
+            cancelPendingResolve();
+        }
+    };
 
     private final List<Diagnostic> diagnostics = new ArrayList<>();
     private AnnotationHolder anonHolder;
@@ -139,7 +202,15 @@ public class EditorEventManager {
     private volatile boolean diagnosticSyncRequired = true;
     private volatile boolean codeActionSyncRequired = false;
 
-    public static final String SNIPPET_PLACEHOLDER_REGEX = "(\\$\\{\\d+:?([^{^}]*)}|\\$\\d+)";
+    // Number of the top ranked completion items which are converted before the rest of the completion response.
+    private static final int COMPLETION_TOP_ITEMS = 100;
+    private static final int COMPLETION_BATCH_SIZE = 2000;
+    private static final Comparator<CompletionItem> COMPLETION_ITEM_RANKING = Comparator
+            .comparing((CompletionItem item) -> !Boolean.TRUE.equals(item.getPreselect()))
+            .thenComparing(item -> item.getSortText() != null ? item.getSortText() :
+                    StringUtils.defaultString(item.getLabel()));
+    // Interval at which the cancellation is checked while waiting for a cancellable request.
+    private static final long CANCELLATION_CHECK_INTERVAL = 50;
     //Todo - Revisit arguments order and add remaining listeners
 
     public EditorEventManager(Editor editor, DocumentListener documentListener, EditorMouseListener mouseListener,
@@ -235,14 +306,15 @@ public class EditorEventManager {
             return;
         }
 
-        PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(editor.getDocument());
-        if (psiFile == null) {
+        if (!isHoverEligible()) {
             return;
         }
-        Language language = psiFile.getLanguage();
-        if ((!LanguageDocumentation.INSTANCE.allForLanguage(language).isEmpty() && !isSupportedLanguageFile(psiFile))
-                || (!getIsCtrlDown() && !EditorSettingsExternalizable.getInstance().isShowQuickDocOnMouseOverElement())) {
-            return;
+        boolean ctrlDown = getIsCtrlDown();
+        if (!ctrlDown) {
+            scheduleHoverPrefetch(e);
+            if (!EditorSettingsExternalizable.getInstance().isShowQuickDocOnMouseOverElement()) {
+                return;
+            }
         }
 
         long curTime = System.nanoTime();
@@ -251,23 +323,27 @@ public class EditorEventManager {
             ctrlTime = curTime;
         } else {
             LogicalPosition lPos = getPos(e);
-            if (lPos == null || getIsKeyPressed() && !getIsCtrlDown()) {
+            if (lPos == null || getIsKeyPressed() && !ctrlDown) {
                 return;
             }
 
             int offset = editor.logicalPositionToOffset(lPos);
-            if (getIsCtrlDown() && curTime - ctrlTime > EditorEventManagerBase.CTRL_THRESH) {
-                if (getCtrlRange() == null || !getCtrlRange().highlightContainsOffset(offset)) {
+            if (ctrlDown && curTime - ctrlTime > EditorEventManagerBase.CTRL_THRESH) {
+                CtrlRangeMarker ctrlRange = getCtrlRange();
+                if (ctrlRange == null || !ctrlRange.highlightContainsOffset(offset)) {
                     if (currentHint != null) {
                         currentHint.hide();
                     }
                     currentHint = null;
-                    if (getCtrlRange() != null) {
-                        getCtrlRange().dispose();
+                    if (ctrlRange != null) {
+                        ctrlRange.dispose();
                     }
                     setCtrlRange(null);
-                    pool(() -> requestAndShowDoc(lPos, e.getMouseEvent().getPoint()));
-                } else if (getCtrlRange().definitionContainsOffset(offset)) {
+                    pool(() -> {
+                        createCtrlRange(lPos);
+                        requestAndShowDoc(lPos, e.getMouseEvent().getPoint());
+                    });
+                } else if (ctrlRange.definitionContainsOffset(offset)) {
                     createAndShowEditorHint(editor, "Click to show usages", editor.offsetToXY(offset));
                 } else {
                     editor.getContentComponent().setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
@@ -278,6 +354,33 @@ public class EditorEventManager {
         }
     }
 
+    /**
+     * Returns whether hovers are handled for this editor. Computed once as this runs on every mouse move, and reset
+     * whenever file types or the file name change.
+     */
+    private boolean isHoverEligible() {
+        Boolean eligible = hoverEligible;
+        if (eligible == null) {
+            PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(editor.getDocument());
+            if (psiFile == null) {
+                // Not cached, the PSI may not be available yet.
+                return false;
+            }
+            Language language = psiFile.getLanguage();
+            eligible = LanguageDocumentation.INSTANCE.allForLanguage(language).isEmpty()
+                    || isSupportedLanguageFile(psiFile);
+            hoverEligible = eligible;
+        }
+        return eligible;
+    }
+
+    /**
+     * Drops the computed hover eligibility, see {@link EditorEventManagerBase}.
+     */
+    void resetHoverEligibility() {
+        hoverEligible = null;
+    }
+
     private boolean isSupportedLanguageFile(PsiFile file) {
         return file.getLanguage().isKindOf(PlainTextLanguage.INSTANCE)
                 || FileUtils.isFileSupported(file.getVirtualFile());
@@ -305,40 +408,80 @@ public class EditorEventManager {
         }
     }
 
-    private void createCtrlRange(Position logicalPos, Range range) {
-        Location location = requestDefinition(logicalPos);
-        if (location == null || location.getRange() == null || editor.isDisposed()) {
+    /**
+     * Underlines the identifier at the given position as a link to its definitions. Runs off the EDT.
+     */
+    private void createCtrlRange(LogicalPosition lPos) {
+        int offset = computableReadAction(() -> editor.logicalPositionToOffset(lPos));
+        Position serverPos = computableReadAction(() -> DocumentUtils.logicalToLSPPos(lPos, editor));
+        Pair<TextRange, List<Location>> definitions = definitions(offset, serverPos);
+        if (definitions == null || definitions.getSecond().isEmpty()) {
             return;
         }
-        Range corRange;
-        if (range == null) {
-            corRange = new Range(logicalPos, logicalPos);
-        } else {
-            corRange = range;
-        }
-        int startOffset = DocumentUtils.LSPPosToOffset(editor, corRange.getStart());
-        int endOffset = DocumentUtils.LSPPosToOffset(editor, corRange.getEnd());
-        boolean isDefinition = DocumentUtils.LSPPosToOffset(editor, location.getRange().getStart()) == startOffset;
-
-        CtrlRangeMarker ctrlRange = getCtrlRange();
-        if (!editor.isDisposed()) {
+        TextRange range = definitions.getFirst();
+        List<Location> locations = definitions.getSecond();
+        invokeLater(() -> {
+            if (editor.isDisposed() || !getIsCtrlDown()) {
+                return;
+            }
+            CtrlRangeMarker ctrlRange = getCtrlRange();
             if (ctrlRange != null) {
                 ctrlRange.dispose();
             }
-            setCtrlRange(new CtrlRangeMarker(location, editor, !isDefinition ?
-                    (editor.getMarkupModel().addRangeHighlighter(startOffset, endOffset, HighlighterLayer.HYPERLINK,
+            boolean isDefinition = isDefinitionOffset(locations, offset);
+            setCtrlRange(new CtrlRangeMarker(locations, editor, !isDefinition ?
+                    (editor.getMarkupModel().addRangeHighlighter(range.getStartOffset(), range.getEndOffset(),
+                            HighlighterLayer.HYPERLINK,
                             editor.getColorsScheme().getAttributes(EditorColors.REFERENCE_HYPERLINK_COLOR),
                             HighlighterTargetArea.EXACT_RANGE)) : null));
+        });
+    }
+
+    /**
+     * Returns the definitions of the identifier at the given offset, from the definition cache if the same
+     * identifier was already looked up in the current version of the document. Blocking.
+     *
+     * @return The range of the identifier and its definitions, or null if the request failed
+     */
+    private Pair<TextRange, List<Location>> definitions(int offset, Position serverPos) {
+        int docVersion = version;
+        Pair<TextRange, List<Location>> cached = definitionCache.get(docVersion, offset);
+        if (cached != null) {
+            return cached;
+        }
+        Pair<Range, List<Location>> definitions = requestDefinition(serverPos);
+        if (definitions == null) {
+            return null;
         }
+        TextRange range = computableReadAction(() -> {
+            if (definitions.getFirst() != null) {
+                int start = DocumentUtils.LSPPosToOffset(editor, definitions.getFirst().getStart());
+                int end = DocumentUtils.LSPPosToOffset(editor, definitions.getFirst().getEnd());
+                if (start <= offset && offset < end) {
+                    return new TextRange(start, end);
+                }
+            }
+            return getWordRangeAt(offset);
+        });
+        if (range == null) {
+            range = new TextRange(offset, offset + 1);
+        }
+        Pair<TextRange, List<Location>> result = new Pair<>(range, definitions.getSecond());
+        if (docVersion == version) {
+            definitionCache.put(docVersion, range.getStartOffset(), range.getEndOffset(), result);
+        }
+        return result;
     }
 
     /**
-     * Returns the position of the definition given a position in the editor
+     * Returns the definitions of the identifier at the given position. Location links are converted to locations
+     * targeting their selection range.
      *
      * @param position The position
-     * @return The location of the definition
+     * @return The range of the identifier if the server reported it (or null), together with the locations of the
+     * definitions. Null if the request failed.
      */
-    private Location requestDefinition(Position position) {
+    private Pair<Range, List<Location>> requestDefinition(Position position) {
         DefinitionParams params = new DefinitionParams(identifier, position);
         CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> request =
                 requestManager.definition(params);
@@ -347,22 +490,34 @@ public class EditorEventManager {
             return null;
         }
         try {
-            // for now we only get Location, so we only check the left, but in future we might need to support
-            // right as well which will return LocationLink
             Either<List<? extends Location>, List<? extends LocationLink>> definition =
                     request.get(getTimeout(DEFINITION), TimeUnit.MILLISECONDS);
             wrapper.notifySuccess(Timeouts.DEFINITION);
 
-            if(definition == null){
-                return null;
-            }
-
-            if (definition.isLeft() && !definition.getLeft().isEmpty()) {
-                // TODO: handle multiple definitions!
-                return definition.getLeft().get(0);
-            }else if( definition.isRight() && !definition.getLeft().isEmpty()){
-                // TODO: implement
+            List<Location> locations = new ArrayList<>();
+            Range originRange = null;
+            if (definition != null && definition.isLeft() && definition.getLeft() != null) {
+                for (Location location : definition.getLeft()) {
+                    if (location != null && location.getRange() != null) {
+                        locations.add(location);
+                    }
+                }
+            } else if (definition != null && definition.isRight() && definition.getRight() != null) {
+                for (LocationLink link : definition.getRight()) {
+                    if (link == null) {
+                        continue;
+                    }
+                    Range target = link.getTargetSelectionRange() != null ? link.getTargetSelectionRange() :
+                            link.getTargetRange();
+                    if (target != null) {
+                        locations.add(new Location(link.getTargetUri(), target));
+                    }
+                    if (originRange == null) {
+                        originRange = link.getOriginSelectionRange();
+                    }
+                }
             }
+            return new Pair<>(originRange, locations);
         } catch (TimeoutException e) {
             LOG.warn(e);
             wrapper.notifyFailure(Timeouts.DEFINITION);
@@ -372,7 +527,20 @@ public class EditorEventManager {
             wrapper.crashed(e);
             return null;
         }
-        return null;
+    }
+
+    /**
+     * Returns whether the given offset of this document is within one of the given definitions
+     */
+    private boolean isDefinitionOffset(List<Location> locations, int offset) {
+        for (Location location : locations) {
+            if (identifier.getUri().equals(FileUtils.sanitizeURI(location.getUri()))
+                    && offset >= DocumentUtils.LSPPosToOffset(editor, location.getRange().getStart())
+                    && offset <= DocumentUtils.LSPPosToOffset(editor, location.getRange().getEnd())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Pair<List<PsiElement>, List<VirtualFile>> references(int offset) {
@@ -414,8 +582,7 @@ public class EditorEventManager {
                         }
                         int logicalStart = DocumentUtils.LSPPosToOffset(curEditor, start);
                         int logicalEnd = DocumentUtils.LSPPosToOffset(curEditor, end);
-                        String name = curEditor.getDocument().getText(new TextRange(logicalStart, logicalEnd));
-                        elements.add(new LSPPsiElement(name, project, logicalStart, logicalEnd,
+                        elements.add(new LSPPsiElement(project, logicalStart, logicalEnd,
                                 PsiDocumentManager.getInstance(project).getPsiFile(curEditor.getDocument())));
                     });
                     if (close) {
@@ -440,6 +607,95 @@ public class EditorEventManager {
         return new Pair<>(null, null);
     }
 
+    /**
+     * Requests the references at the given offset and passes them to the processor as usages, file by file, as soon as
+     * each file is resolved. The usages are created from the offsets in the documents of the files, hence no editor is
+     * opened. Must be called from a background thread with a progress indicator, as it can be cancelled through it.
+     *
+     * @param offset             The offset in the editor
+     * @param includeDeclaration Whether to include the declaration of the symbol
+     * @param processor          Receives the usages, and stops the processing by returning false
+     */
+    public void processReferences(int offset, boolean includeDeclaration, Processor<? super UsageInfo> processor) {
+        Position lspPos = DocumentUtils.offsetToLSPPos(editor, offset);
+        CompletableFuture<List<? extends Location>> request = requestManager
+                .references(new ReferenceParams(identifier, lspPos, new ReferenceContext(includeDeclaration)));
+        if (request == null) {
+            return;
+        }
+        List<? extends Location> locations;
+        try {
+            locations = awaitCancellable(request, getTimeout(REFERENCES));
+            wrapper.notifySuccess(Timeouts.REFERENCES);
+        } catch (TimeoutException e) {
+            LOG.warn(e);
+            wrapper.notifyFailure(Timeouts.REFERENCES);
+            return;
+        } catch (InterruptedException | JsonRpcException | ExecutionException e) {
+            LOG.warn(e);
+            wrapper.crashed(e);
+            return;
+        }
+        if (locations == null || locations.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Range>> rangesByUri = new LinkedHashMap<>();
+        locations.forEach(l -> rangesByUri.computeIfAbsent(FileUtils.sanitizeURI(l.getUri()), k -> new ArrayList<>())
+                .add(l.getRange()));
+        for (Map.Entry<String, List<Range>> entry : rangesByUri.entrySet()) {
+            ProgressManager.checkCanceled();
+            VirtualFile file = FileUtils.virtualFileFromURI(entry.getKey());
+            if (file == null) {
+                continue;
+            }
+            List<UsageInfo> usages = computableReadAction(() -> {
+                PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+                Document document = FileDocumentManager.getInstance().getDocument(file);
+                if (psiFile == null || document == null) {
+                    return Collections.<UsageInfo>emptyList();
+                }
+                List<UsageInfo> infos = new ArrayList<>(entry.getValue().size());
+                for (Range range : entry.getValue()) {
+                    int start = DocumentUtils.LSPPosToOffset(document, range.getStart());
+                    int end = DocumentUtils.LSPPosToOffset(document, range.getEnd());
+                    infos.add(new UsageInfo(psiFile, start, Math.max(start, end)));
+                }
+                return infos;
+            });
+            for (UsageInfo usage : usages) {
+                if (!processor.process(usage)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the given request while checking for the cancellation of the current progress, which cancels the
+     * request.
+     */
+    private static <T> T awaitCancellable(CompletableFuture<T> request, long timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            try {
+                ProgressManager.checkCanceled();
+            } catch (ProcessCanceledException e) {
+                request.cancel(true);
+                throw e;
+            }
+            try {
+                return request.get(CANCELLATION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    request.cancel(true);
+                    throw e;
+                }
+            }
+        }
+    }
+
     /**
      * @return The current diagnostics highlights
      */
@@ -692,6 +948,9 @@ public class EditorEventManager {
      * @param renameTo The new name
      */
     public void rename(String renameTo, int offset) {
+        // The editors opened for the rename are closed once the edit is applied.
+        List<VirtualFile> toClose = new ArrayList<>(LSPRenameProcessor.getEditors());
+        LSPRenameProcessor.clearEditors();
         pool(() -> {
             if (editor.isDisposed()) {
                 return;
@@ -700,15 +959,95 @@ public class EditorEventManager {
             RenameParams params = new RenameParams(identifier, servPos, renameTo);
             CompletableFuture<WorkspaceEdit> request = requestManager.rename(params);
             if (request != null) {
-                request.thenAccept(res -> {
-                    WorkspaceEditHandler
-                            .applyEdit(res, "Rename to " + renameTo, new ArrayList<>(LSPRenameProcessor.getEditors()));
-                    LSPRenameProcessor.clearEditors();
+                request.whenComplete((res, t) -> {
+                    Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    if (cause instanceof ResponseErrorException) {
+                        // The server rejects the rename, e.g. as the new name is invalid.
+                        LOG.info(cause.getMessage());
+                        showRenameError(cause.getMessage());
+                        return;
+                    } else if (cause != null) {
+                        LOG.warn(cause);
+                        wrapper.notifyFailure(Timeouts.RENAME);
+                        return;
+                    }
+                    wrapper.notifySuccess(Timeouts.RENAME);
+                    WorkspaceEditHandler.applyEditAsync(res, "Rename to " + renameTo, toClose).thenAccept(applied -> {
+                        if (!applied) {
+                            LOG.warn("Couldn't apply the rename to " + renameTo);
+                            showRenameError("Couldn't apply the rename to " + renameTo);
+                        }
+                    });
                 });
             }
         });
     }
 
+    private void showRenameError(String message) {
+        invokeLater(() -> {
+            if (!editor.isDisposed()) {
+                HintManager.getInstance().showErrorHint(editor, message);
+            }
+        });
+    }
+
+    /**
+     * @return True if the server renames symbols itself (textDocument/rename)
+     */
+    public boolean isRenameSupported() {
+        return wrapper.isRenameProvider();
+    }
+
+    /**
+     * @return True if the server validates renames (textDocument/prepareRename)
+     */
+    public boolean isPrepareRenameSupported() {
+        return wrapper.isPrepareRenameProvider();
+    }
+
+    /**
+     * Asks the server whether the symbol at the given offset can be renamed
+     *
+     * @param offset The offset in the editor
+     * @return The range of the symbol to rename, or null if it can't be renamed
+     */
+    public TextRange prepareRename(int offset) {
+        Position servPos = DocumentUtils.offsetToLSPPos(editor, offset);
+        CompletableFuture<Either<Range, PrepareRenameResult>> request = requestManager
+                .prepareRename(new PrepareRenameParams(identifier, servPos));
+        if (request == null) {
+            return null;
+        }
+        try {
+            Either<Range, PrepareRenameResult> res = request.get(getTimeout(RENAME), TimeUnit.MILLISECONDS);
+            wrapper.notifySuccess(Timeouts.RENAME);
+            Range range = res == null ? null : res.isLeft() ? res.getLeft() : res.getRight().getRange();
+            if (range == null) {
+                return null;
+            }
+            int start = DocumentUtils.LSPPosToOffset(editor, range.getStart());
+            int end = DocumentUtils.LSPPosToOffset(editor, range.getEnd());
+            return start <= end ? new TextRange(start, end) : null;
+        } catch (TimeoutException e) {
+            LOG.warn(e);
+            wrapper.notifyFailure(Timeouts.RENAME);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ResponseErrorException) {
+                // The server rejects the rename with an error message.
+                LOG.info(e.getCause().getMessage());
+                return null;
+            }
+            LOG.warn(e);
+            wrapper.crashed(e);
+            return null;
+        } catch (InterruptedException | JsonRpcException e) {
+            LOG.warn(e);
+            wrapper.crashed(e);
+            return null;
+        }
+    }
+
     /**
      * Immediately requests the server for documentation at the current editor position
      *
@@ -727,45 +1066,61 @@ public class EditorEventManager {
     }
 
     /**
-     * Gets the hover request and shows it
+     * Gets the hover (from the hover cache, or else from the server) and shows it
      *
      * @param editorPos The editor position
      * @param point     The point at which to show the hint
      */
     private void requestAndShowDoc(LogicalPosition editorPos, Point point) {
+        int docVersion = version;
+        int offset = computableReadAction(() -> editor.logicalPositionToOffset(editorPos));
+        String cached = hoverCache.get(docVersion, offset);
+        String string = cached != null ? cached : requestHover(editorPos, offset, docVersion);
+        if (StringUtils.isEmpty(string)) {
+            return;
+        }
+
+        if (getIsCtrlDown()) {
+            invokeLater(() -> {
+                if (!editor.isDisposed()) {
+                    currentHint = createAndShowEditorHint(editor, string, point, HintManager.HIDE_BY_OTHER_HINT);
+                }
+            });
+        } else {
+            invokeLater(() -> {
+                if (!editor.isDisposed()) {
+                    currentHint = createAndShowEditorHint(editor, string, point);
+                }
+            });
+        }
+    }
+
+    /**
+     * Requests the hover for the given position and caches the rendered result for the hovered range
+     *
+     * @return The rendered hover string, or null if the request failed
+     */
+    private String requestHover(LogicalPosition editorPos, int offset, int docVersion) {
         Position serverPos = computableReadAction(() -> DocumentUtils.logicalToLSPPos(editorPos, editor));
         CompletableFuture<Hover> request = requestManager.hover(new HoverParams(identifier, serverPos));
         if (request == null) {
-            return;
+            return null;
         }
         try {
             Hover hover = request.get(getTimeout(HOVER), TimeUnit.MILLISECONDS);
             wrapper.notifySuccess(Timeouts.HOVER);
 
-            if (hover == null) {
-                return;
-            }
-
-            String string = HoverHandler.getHoverString(hover);
-            if (StringUtils.isEmpty(string)) {
-                LOG.warn(String.format("Hover string returned is null for file %s and pos (%d;%d)",
-                        identifier.getUri(), serverPos.getLine(), serverPos.getCharacter()));
-                return;
-            }
-
-            if (getIsCtrlDown()) {
-                invokeLater(() -> {
-                    if (!editor.isDisposed()) {
-                        currentHint = createAndShowEditorHint(editor, string, point, HintManager.HIDE_BY_OTHER_HINT);
-                    }
-                });
-            } else {
-                invokeLater(() -> {
-                    if (!editor.isDisposed()) {
-                        currentHint = createAndShowEditorHint(editor, string, point);
-                    }
-                });
+            String string = "";
+            if (hover != null) {
+                string = HoverHandler.getHoverString(hover, wrapper.getRenderStatistics());
+                if (StringUtils.isEmpty(string)) {
+                    LOG.warn(String.format("Hover string returned is null for file %s and pos (%d;%d)",
+                            identifier.getUri(), serverPos.getLine(), serverPos.getCharacter()));
+                }
             }
+            // Empty results are cached as well, so that the server is not asked again for the same range.
+            cacheHover(hover, offset, docVersion, string);
+            return string;
         } catch (TimeoutException e) {
             LOG.warn(e);
             wrapper.notifyFailure(Timeouts.HOVER);
@@ -773,6 +1128,82 @@ public class EditorEventManager {
             LOG.warn(e);
             wrapper.crashed(e);
         }
+        return null;
+    }
+
+    private void cacheHover(Hover hover, int offset, int docVersion, String string) {
+        if (docVersion != version || editor.isDisposed()) {
+            return;
+        }
+        TextRange hoverRange = null;
+        if (hover != null && hover.getRange() != null) {
+            int start = DocumentUtils.LSPPosToOffset(editor, hover.getRange().getStart());
+            int end = DocumentUtils.LSPPosToOffset(editor, hover.getRange().getEnd());
+            if (start <= offset && offset < end) {
+                hoverRange = new TextRange(start, end);
+            }
+        }
+        if (hoverRange == null) {
+            hoverRange = computableReadAction(() -> getWordRangeAt(offset));
+        }
+        if (hoverRange != null) {
+            hoverCache.put(docVersion, hoverRange.getStartOffset(), hoverRange.getEndOffset(), string);
+        }
+    }
+
+    /**
+     * Schedules a hover request for the identifier under the mouse, once the mouse rests on it for the quick doc
+     * delay. The result is only put into the hover cache.
+     */
+    private void scheduleHoverPrefetch(EditorMouseEvent e) {
+        if (!ServiceManager.getService(IntellijLanguageClient.class).isHoverPrefetchEnabled()) {
+            return;
+        }
+        LogicalPosition lPos = getPos(e);
+        if (lPos == null) {
+            return;
+        }
+        int offset = editor.logicalPositionToOffset(lPos);
+        TextRange wordRange = getWordRangeAt(offset);
+        if (wordRange == null || wordRange.equals(hoverPrefetchRange)) {
+            return;
+        }
+        hoverPrefetchRange = wordRange;
+        if (hoverPrefetch != null) {
+            hoverPrefetch.cancel(false);
+        }
+        int docVersion = version;
+        hoverPrefetch = AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> {
+            if (!editor.isDisposed() && docVersion == version && hoverCache.get(docVersion, offset) == null) {
+                requestHover(lPos, offset, docVersion);
+            }
+        }, EditorSettingsExternalizable.getInstance().getQuickDocOnMouseOverElementDelayMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelHoverPrefetch() {
+        if (hoverPrefetch != null) {
+            hoverPrefetch.cancel(false);
+        }
+        hoverPrefetchRange = null;
+    }
+
+    /**
+     * @return The range of the identifier at the given offset, or null if there is no identifier
+     */
+    private TextRange getWordRangeAt(int offset) {
+        CharSequence text = editor.getDocument().getImmutableCharSequence();
+        if (offset < 0 || offset >= text.length() || !Character.isJavaIdentifierPart(text.charAt(offset))) {
+            return null;
+        }
+        int start = offset;
+        int end = offset + 1;
+        while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+            start--;
+        }
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+            end++;
+        }
+        return new TextRange(start, end);
     }
 
     /**
@@ -783,34 +1214,39 @@ public class EditorEventManager {
      */
     @NotNull
     public Iterable<? extends LookupElement> completion(Position pos) {
-
         List<LookupElement> lookupItems = new ArrayList<>();
+        completion(pos, lookupItems::add);
+        return lookupItems;
+    }
+
+    /**
+     * Requests the completion suggestions for the given position and streams the corresponding lookup elements to
+     * the given consumer. The top ranked items (preselected items first, then ordered by their sort text) are
+     * converted first, so that they can be shown right away. The remaining items are converted in parallel, batch by
+     * batch, and the conversion stops as soon as the calling thread gets interrupted (i.e. the completion is
+     * cancelled). The consumer is always invoked from the calling thread.
+     *
+     * @param pos      The LSP position
+     * @param consumer The consumer of the lookup elements
+     */
+    public void completion(Position pos, Consumer<LookupElement> consumer) {
         CompletableFuture<Either<List<CompletionItem>, CompletionList>> request = requestManager
                 .completion(new CompletionParams(identifier, pos));
         if (request == null) {
-            return lookupItems;
+            return;
         }
 
+        List<CompletionItem> items = null;
         try {
             Either<List<CompletionItem>, CompletionList> res = request.get(getTimeout(COMPLETION), TimeUnit.MILLISECONDS);
             wrapper.notifySuccess(Timeouts.COMPLETION);
             if (res == null) {
-                return lookupItems;
+                return;
             }
             if (res.getLeft() != null) {
-                for (CompletionItem item : res.getLeft()) {
-                    LookupElement lookupElement = createLookupItem(item);
-                    if (lookupElement != null) {
-                        lookupItems.add(lookupElement);
-                    }
-                }
+                items = res.getLeft();
             } else if (res.getRight() != null) {
-                for (CompletionItem item : res.getRight().getItems()) {
-                    LookupElement lookupElement = createLookupItem(item);
-                    if (lookupElement != null) {
-                        lookupItems.add(lookupElement);
-                    }
-                }
+                items = res.getRight().getItems();
             }
         } catch (TimeoutException | InterruptedException e) {
             LOG.warn(e);
@@ -819,7 +1255,64 @@ public class EditorEventManager {
             LOG.warn(e);
             wrapper.crashed(e);
         }
-        return lookupItems;
+        if (items == null || items.isEmpty()) {
+            return;
+        }
+
+        List<CompletionItem> topItems = selectTopItems(items, COMPLETION_TOP_ITEMS);
+        topItems.stream().map(this::createLookupItem).filter(Objects::nonNull).forEach(consumer);
+        if (topItems.size() == items.size()) {
+            return;
+        }
+
+        Set<CompletionItem> converted = Collections.newSetFromMap(new IdentityHashMap<>());
+        converted.addAll(topItems);
+        List<CompletionItem> remaining = new ArrayList<>(items.size() - topItems.size());
+        items.stream().filter(item -> !converted.contains(item)).forEach(remaining::add);
+
+        for (int from = 0; from < remaining.size(); from += COMPLETION_BATCH_SIZE) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            List<CompletionItem> batch = remaining.subList(from, Math.min(from + COMPLETION_BATCH_SIZE, remaining.size()));
+            batch.parallelStream().map(this::createLookupItem).filter(Objects::nonNull).collect(Collectors.toList())
+                    .forEach(consumer);
+        }
+    }
+
+    /**
+     * Selects (in rank order) the top k completion items, without sorting the complete list.
+     */
+    private static List<CompletionItem> selectTopItems(List<CompletionItem> items, int k) {
+        if (items.size() <= k) {
+            return items;
+        }
+        PriorityQueue<CompletionItem> top = new PriorityQueue<>(k + 1, COMPLETION_ITEM_RANKING.reversed());
+        for (CompletionItem item : items) {
+            top.offer(item);
+            if (top.size() > k) {
+                top.poll();
+            }
+        }
+        List<CompletionItem> result = new ArrayList<>(top);
+        result.sort(COMPLETION_ITEM_RANKING);
+        return result;
+    }
+
+    private Icon getCompletionIcon(CompletionItemKind kind) {
+        if (kind == null) {
+            return null;
+        }
+        Icon[] icons = completionIcons;
+        if (icons == null) {
+            LSPIconProvider iconProvider = GUIUtils.getIconProviderFor(wrapper.getServerDefinition());
+            icons = new Icon[CompletionItemKind.values().length];
+            for (CompletionItemKind itemKind : CompletionItemKind.values()) {
+                icons[itemKind.ordinal()] = iconProvider.getCompletionIcon(itemKind);
+            }
+            completionIcons = icons;
+        }
+        return icons[kind.ordinal()];
     }
 
     /**
@@ -830,17 +1323,12 @@ public class EditorEventManager {
      */
     @SuppressWarnings("WeakerAccess")
     public LookupElement createLookupItem(CompletionItem item) {
-        Command command = item.getCommand();
-        String detail = item.getDetail();
         String insertText = item.getInsertText();
         CompletionItemKind kind = item.getKind();
         String label = item.getLabel();
         TextEdit textEdit = item.getTextEdit();
-        List<TextEdit> addTextEdits = item.getAdditionalTextEdits();
         String presentableText = StringUtils.isNotEmpty(label) ? label : (insertText != null) ? insertText : "";
-        String tailText = (detail != null) ? detail : "";
-        LSPIconProvider iconProvider = GUIUtils.getIconProviderFor(wrapper.getServerDefinition());
-        Icon icon = iconProvider.getCompletionIcon(kind);
+        Icon icon = getCompletionIcon(kind);
         LookupElementBuilder lookupElementBuilder;
 
         String lookupString = null;
@@ -857,16 +1345,167 @@ public class EditorEventManager {
         // Fixes IDEA internal assertion failure in windows.
         lookupString = lookupString.replace(DocumentUtils.WIN_SEPARATOR, DocumentUtils.LINUX_SEPARATOR);
 
-        lookupElementBuilder = LookupElementBuilder.create(getLookupStringWithoutPlaceholders(item, lookupString));
+        // The completion item is kept as the lookup object, so that it can be resolved once it gets highlighted.
+        lookupElementBuilder = LookupElementBuilder.create(item, getLookupStringWithoutPlaceholders(item, lookupString));
 
         lookupElementBuilder = addCompletionInsertHandlers(item, lookupElementBuilder, lookupString);
 
-        if (kind == CompletionItemKind.Keyword) {
-            lookupElementBuilder = lookupElementBuilder.withBoldness(true);
+        // The type text is rendered from the resolved item (if available), as lightweight items may not carry the
+        // detail until they are resolved.
+        return lookupElementBuilder.withRenderer(new LookupElementRenderer<LookupElement>() {
+            @Override
+            public void renderElement(LookupElement element, LookupElementPresentation presentation) {
+                CompletionItem resolved = resolvedItems.get(item);
+                String detail = (resolved != null && resolved.getDetail() != null) ? resolved.getDetail() :
+                        item.getDetail();
+                presentation.setItemText(presentableText);
+                presentation.setItemTextBold(kind == CompletionItemKind.Keyword);
+                presentation.setIcon(icon);
+                presentation.setTypeText(detail != null ? detail : "");
+                presentation.setTypeGrayed(true);
+            }
+        }).withAutoCompletionPolicy(AutoCompletionPolicy.SETTINGS_DEPENDENT);
+    }
+
+    /**
+     * Resolves the given completion item using completionItem/resolve. Resolved items are cached, and a pending
+     * resolve request of a different item is cancelled, since only the highlighted item is of interest.
+     *
+     * @param item The completion item to be resolved
+     * @return The future of the resolved item, or null if the server does not support resolving completion items
+     */
+    public CompletableFuture<CompletionItem> resolveCompletionItem(CompletionItem item) {
+        CompletionItem resolved = resolvedItems.get(item);
+        if (resolved != null) {
+            return CompletableFuture.completedFuture(resolved);
+        }
+        synchronized (resolveLock) {
+            if (pendingResolve != null && !pendingResolve.isDone()) {
+                if (item.equals(pendingResolveItem)) {
+                    return pendingResolve;
+                }
+                pendingResolve.cancel(true);
+            }
+            CompletableFuture<CompletionItem> request = requestManager.resolveCompletionItem(item);
+            if (request == null) {
+                return null;
+            }
+            pendingResolveItem = item;
+            pendingResolve = request;
+            request.thenAccept(res -> {
+                if (res != null) {
+                    resolvedItems.put(item, res);
+                }
+            });
+            return request;
+        }
+    }
+
+    /**
+     * Returns the documentation of the given completion item as HTML, resolving the item first if it was not resolved
+     * yet. Blocking, but stops with a ProcessCanceledException if the current progress is cancelled.
+     *
+     * @param item The completion item
+     * @return The documentation, or null if the item has none
+     */
+    public String getCompletionDocumentation(CompletionItem item) {
+        CompletionItem resolved = resolvedItems.get(item);
+        if (resolved == null) {
+            resolved = item;
+            CompletableFuture<CompletionItem> request = resolveCompletionItem(item);
+            if (request != null) {
+                try {
+                    CompletionItem res = awaitCancellable(request, getTimeout(COMPLETION));
+                    wrapper.notifySuccess(COMPLETION);
+                    if (res != null) {
+                        resolved = res;
+                    }
+                } catch (TimeoutException e) {
+                    wrapper.notifyFailure(COMPLETION);
+                } catch (CancellationException e) {
+                    // Another item got highlighted in the meantime.
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.warn(e);
+                    wrapper.notifyFailure(COMPLETION);
+                }
+            }
+        }
+        String documentation = HoverHandler.getDocumentationString(resolved.getDocumentation(),
+                wrapper.getRenderStatistics());
+        String detail = resolved.getDetail();
+        if (StringUtils.isEmpty(detail) && documentation.isEmpty()) {
+            return null;
+        }
+        return "<html>" + (StringUtils.isEmpty(detail) ? "" : "<pre>" + StringUtil.escapeXmlEntities(detail) +
+                "</pre>") + documentation + "</html>";
+    }
+
+    private void cancelPendingResolve() {
+        synchronized (resolveLock) {
+            if (pendingResolve != null && !pendingResolve.isDone()) {
+                pendingResolve.cancel(true);
+            }
+            pendingResolve = null;
+            pendingResolveItem = null;
+        }
+    }
+
+    private void activeLookupChanged(PropertyChangeEvent event) {
+        if (!LookupManager.PROP_ACTIVE_LOOKUP.equals(event.getPropertyName())) {
+            return;
+        }
+        Object newLookup = event.getNewValue();
+        if (newLookup instanceof Lookup && ((Lookup) newLookup).getEditor() == editor) {
+            ((Lookup) newLookup).addLookupListener(lookupItemListener);
+        }
+    }
+
+    private void resolveHighlightedItem(Lookup lookup, LookupElement element) {
+        if (element == null || !(element.getObject() instanceof CompletionItem)) {
+            return;
+        }
+        CompletionItem item = (CompletionItem) element.getObject();
+        if (resolvedItems.get(item) != null) {
+            return;
         }
+        CompletableFuture<CompletionItem> request = resolveCompletionItem(item);
+        if (request == null) {
+            return;
+        }
+        request.thenAccept(res -> invokeLater(() -> {
+            if (lookup instanceof LookupImpl && !((LookupImpl) lookup).isLookupDisposed()) {
+                ((LookupImpl) lookup).refreshUi(false, false);
+            }
+        }));
+    }
 
-        return lookupElementBuilder.withPresentableText(presentableText).withTypeText(tailText, true).withIcon(icon)
-                .withAutoCompletionPolicy(AutoCompletionPolicy.SETTINGS_DEPENDENT);
+    /**
+     * Returns the resolved version of the given item if it is already available (i.e. resolved while the item was
+     * highlighted), and the given item otherwise. Never waits for the server, as items are inserted on the EDT.
+     */
+    private CompletionItem resolveForInsertion(CompletionItem item) {
+        CompletionItem resolved = resolvedItems.get(item);
+        if (resolved != null) {
+            return resolved;
+        }
+        CompletableFuture<CompletionItem> request;
+        synchronized (resolveLock) {
+            request = item.equals(pendingResolveItem) ? pendingResolve : null;
+        }
+        if (request == null || !request.isDone()) {
+            return item;
+        }
+        try {
+            resolved = request.getNow(null);
+            return resolved != null ? resolved : item;
+        } catch (CancellationException e) {
+            LOG.debug("Completion item resolve request was cancelled.");
+        } catch (CompletionException e) {
+            // An error response of the server, which is still running.
+            LOG.warn(e);
+            wrapper.notifyFailure(Timeouts.COMPLETION);
+        }
+        return item;
     }
 
     private String getLookupStringWithoutPlaceholders(CompletionItem item, String lookupString) {
@@ -881,48 +1520,42 @@ public class EditorEventManager {
     public LookupElementBuilder addCompletionInsertHandlers(CompletionItem item, LookupElementBuilder builder, String lookupString) {
 
         String label = item.getLabel();
-        Command command = item.getCommand();
-        List<TextEdit> addTextEdits = item.getAdditionalTextEdits();
         InsertTextFormat format = item.getInsertTextFormat();
 
-        if (addTextEdits != null) {
-            builder = builder.withInsertHandler((InsertionContext context, LookupElement lookupElement) -> invokeLater(() -> {
-                applyInitialTextEdit(item, lookupString);
+        return builder.withInsertHandler((InsertionContext context, LookupElement lookupElement) -> {
+            // Additional edits and commands may only be available after resolving the item.
+            CompletionItem resolved = resolveForInsertion(item);
+            Command command = resolved.getCommand();
+            List<TextEdit> addTextEdits = resolved.getAdditionalTextEdits();
 
-                if (format == InsertTextFormat.Snippet) {
-                    context.commitDocument();
-                    prepareAndRunSnippet(lookupString);
-                }
+            if (addTextEdits != null) {
+                invokeLater(() -> {
+                    applyInitialTextEdit(item, lookupString);
 
-                context.commitDocument();
-                applyEdit(Integer.MAX_VALUE, addTextEdits, "Completion : " + label, false, false);
-                if (command != null) {
-                    executeCommands(Collections.singletonList(command));
-                }
-            }));
-        } else if (command != null) {
-            builder = builder.withInsertHandler((InsertionContext context, LookupElement lookupElement) -> {
-                applyInitialTextEdit(item, lookupString);
+                    if (format == InsertTextFormat.Snippet) {
+                        context.commitDocument();
+                        prepareAndRunSnippet(lookupString);
+                    }
 
-                if (format == InsertTextFormat.Snippet) {
                     context.commitDocument();
-                    prepareAndRunSnippet(lookupString);
-                }
-                context.commitDocument();
-                executeCommands(Collections.singletonList(command));
-            });
-        } else {
-            builder = builder.withInsertHandler((InsertionContext context, LookupElement lookupElement) -> {
+                    applyEdit(Integer.MAX_VALUE, addTextEdits, "Completion : " + label, false, false);
+                    if (command != null) {
+                        executeCommands(Collections.singletonList(command));
+                    }
+                });
+            } else {
                 applyInitialTextEdit(item, lookupString);
 
                 if (format == InsertTextFormat.Snippet) {
                     context.commitDocument();
                     prepareAndRunSnippet(lookupString);
                 }
-            });
-        }
-
-        return builder;
+                if (command != null) {
+                    context.commitDocument();
+                    executeCommands(Collections.singletonList(command));
+                }
+            }
+        });
     }
 
     private void applyInitialTextEdit(CompletionItem item, String lookupString) {
@@ -945,46 +1578,80 @@ public class EditorEventManager {
 
     @SuppressWarnings("WeakerAccess")
     public void prepareAndRunSnippet(String insertText) {
-
-        List<SnippetVariable> variables = new ArrayList<>();
-        // Extracts variables using placeholder REGEX pattern.
-        Matcher varMatcher = Pattern.compile(SNIPPET_PLACEHOLDER_REGEX).matcher(insertText);
-        while (varMatcher.find()) {
-            variables.add(new SnippetVariable(varMatcher.group(), varMatcher.start(), varMatcher.end()));
+        List<SnippetParser.Segment> segments = SnippetParser.parse(insertText, this::resolveSnippetVariable);
+        if (segments.stream().allMatch(segment -> segment.getKind() == SnippetParser.Segment.Kind.TEXT)) {
+            // Nothing to navigate, the text is already inserted.
+            return;
         }
 
-        variables.sort(Comparator.comparingInt(o -> o.startIndex));
-        final String[] finalInsertText = {insertText};
-        variables.forEach(var -> finalInsertText[0] = finalInsertText[0].replace(var.lspSnippetText, "$"));
-
-        String[] splitInsertText = finalInsertText[0].split("\\$");
-        finalInsertText[0] = String.join("", splitInsertText);
-
-        TemplateImpl template = (TemplateImpl) TemplateManager.getInstance(getProject()).createTemplate(finalInsertText[0],
+        TemplateImpl template = (TemplateImpl) TemplateManager.getInstance(getProject()).createTemplate("",
                 "lsp4intellij");
+        // The tab order of a template is the order in which its variables are defined. They are hence defined by tab
+        // stop index before the segments are parsed (which does not place them in the text), and their occurrences
+        // are placed below in text order.
+        for (SnippetParser.Segment segment : SnippetParser.navigationOrder(segments)) {
+            if (segment.getIndex() == 0 && segment.getText().isEmpty()) {
+                continue;
+            }
+            Expression expression = segment.getChoices() != null ?
+                    new SnippetChoiceExpression(segment.getChoices()) : new TextExpression(segment.getText());
+            template.addVariable(snippetVariableName(segment), expression, expression, true, false);
+        }
         template.parseSegments();
 
-        final int[] varIndex = {0};
-        variables.forEach(var -> {
-            template.addTextSegment(splitInsertText[varIndex[0]]);
-            template.addVariable(varIndex[0] + "_" + var.variableValue, new TextExpression(var.variableValue),
-                    new TextExpression(var.variableValue), true, false);
-            varIndex[0]++;
-        });
-        // If the snippet text ends with a placeholder, there will be no string segment left to append after the last
-        // variable.
-        if (splitInsertText.length != variables.size()) {
-            template.addTextSegment(splitInsertText[splitInsertText.length - 1]);
+        boolean endAdded = false;
+        for (SnippetParser.Segment segment : segments) {
+            if (segment.getKind() == SnippetParser.Segment.Kind.TEXT) {
+                template.addTextSegment(segment.getText());
+            } else if (segment.getIndex() == 0) {
+                // Templates have no default text for the end variable, hence the placeholder of ${0:text} is a
+                // regular variable (navigated last), followed by the end variable.
+                if (!segment.getText().isEmpty()) {
+                    template.addVariableSegment(snippetVariableName(segment));
+                }
+                if (!endAdded) {
+                    template.addEndVariable();
+                    endAdded = true;
+                }
+            } else {
+                template.addVariableSegment(snippetVariableName(segment));
+            }
         }
         template.setInline(true);
-        if(variables.size() > 0){
-            EditorModificationUtil.moveCaretRelatively(editor, -template.getTemplateText().length());
-        }
+        // The plain text of the snippet (i.e. the template text) is already inserted by the lookup.
+        EditorModificationUtil.moveCaretRelatively(editor, -template.getTemplateText().length());
         TemplateManager.getInstance(getProject()).startTemplate(editor, template);
     }
 
+    private static String snippetVariableName(SnippetParser.Segment segment) {
+        return segment.getKind() == SnippetParser.Segment.Kind.TAB_STOP ? "tabstop_" + segment.getIndex() :
+                "variable_" + segment.getName();
+    }
+
+    /**
+     * Resolves the snippet variables which are related to the file of this editor.
+     */
+    private String resolveSnippetVariable(String name) {
+        VirtualFile file = FileDocumentManager.getInstance().getFile(editor.getDocument());
+        if (file == null) {
+            return null;
+        }
+        switch (name) {
+            case "TM_FILENAME":
+                return file.getName();
+            case "TM_FILENAME_BASE":
+                return file.getNameWithoutExtension();
+            case "TM_DIRECTORY":
+                return file.getParent() != null ? file.getParent().getPath() : null;
+            case "TM_FILEPATH":
+                return file.getPath();
+            default:
+                return null;
+        }
+    }
+
     private String convertPlaceHolders(String insertText) {
-        return insertText.replaceAll(SNIPPET_PLACEHOLDER_REGEX, "");
+        return SnippetParser.toPlainText(SnippetParser.parse(insertText, this::resolveSnippetVariable));
     }
 
     /**
@@ -1067,49 +1734,21 @@ public class EditorEventManager {
             // Creates a sorted edit list based on the insertion position and the edits will be applied from the bottom
             // to the top of the document. Otherwise all the other edit ranges will be invalid after the very first edit,
             // since the document is changed.
-            List<LSPTextEdit> lspEdits = new ArrayList<>();
-            edits.forEach(edit -> {
-                String text = edit.getNewText();
-                Range range = edit.getRange();
-
-                if (range != null && StringUtils.isNotEmpty(text)) {
-                    int start = DocumentUtils.LSPPosToOffset(editor, range.getStart());
-                    int end = DocumentUtils.LSPPosToOffset(editor, range.getEnd());
-                    lspEdits.add(new LSPTextEdit(text, start, end));
-                }
-            });
-
-            // Sort according to the start offset, in descending order.
-            Collections.sort(lspEdits);
-
-            lspEdits.forEach(edit -> {
-                String text = edit.getText();
-                int start = edit.getStartOffset();
-                int end = edit.getEndOffset();
-                if (StringUtils.isEmpty(text)) {
-                    document.deleteString(start, end);
-                    if (setCaret) {
-                        editor.getCaretModel().moveToOffset(start);
-                    }
-                } else {
-                    text = text.replace(DocumentUtils.WIN_SEPARATOR, DocumentUtils.LINUX_SEPARATOR);
-                    if (end >= 0) {
-                        if (end - start <= 0) {
-                            document.insertString(start, text);
-                        } else {
-                            document.replaceString(start, end, text);
-                        }
-                    } else if (start == 0) {
-                        document.setText(text);
-                    } else if (start > 0) {
-                        document.insertString(start, text);
-                    }
-                    if (setCaret) {
-                        editor.getCaretModel().moveToOffset(start + text.length());
-                    }
-                }
-                saveDocument();
-            });
+            List<LSPTextEdit> lspEdits = LSPTextEdit.toSortedEdits(document, edits);
+            if (lspEdits.isEmpty()) {
+                return;
+            }
+            // Large batches are applied in bulk mode, which defers the editor updates and syncs the whole change with
+            // the server at once (see documentBulkUpdateFinished). Smaller ones are synced per edit, as incremental
+            // changes are cheaper than the full text for a few edits.
+            DocumentUtil.executeInBulk(document, lspEdits.size() > LSPTextEdit.BULK_EDIT_THRESHOLD,
+                    () -> LSPTextEdit.applyAll(document, lspEdits));
+            if (setCaret) {
+                // The last applied edit is the topmost one, hence its offsets weren't shifted by the others.
+                LSPTextEdit last = lspEdits.get(lspEdits.size() - 1);
+                editor.getCaretModel().moveToOffset(last.getStartOffset() + last.getText().length());
+            }
+            saveDocument();
         };
     }
 
@@ -1155,10 +1794,37 @@ public class EditorEventManager {
         editor.addEditorMouseListener(mouseListener);
         editor.addEditorMouseMotionListener(mouseMotionListener);
         editor.getCaretModel().addCaretListener(caretListener);
+        LookupManager.getInstance(project).addPropertyChangeListener(lookupChangeListener);
+        editor.getScrollingModel().addVisibleAreaListener(visibleAreaListener);
+        invokeLater(this::updateVisibleRange);
         // Todo - Implement
         // editor.getSelectionModel.addSelectionListener(selectionListener)
     }
 
+    /**
+     * @return The document range visible in the editor as of its last scroll or resize, or null if it is not known.
+     * Can be called from any thread.
+     */
+    public TextRange getVisibleRange() {
+        return visibleRange;
+    }
+
+    private void updateVisibleRange() {
+        if (editor.isDisposed()) {
+            visibleRange = null;
+            return;
+        }
+        Rectangle area = editor.getScrollingModel().getVisibleArea();
+        if (area.isEmpty()) {
+            visibleRange = null;
+            return;
+        }
+        int start = editor.logicalPositionToOffset(editor.xyToLogicalPosition(area.getLocation()));
+        int end = editor.logicalPositionToOffset(editor.xyToLogicalPosition(
+                new Point(area.x + area.width, area.y + area.height)));
+        visibleRange = start <= end ? new TextRange(start, end) : null;
+    }
+
     /**
      * Removes all the listeners
      */
@@ -1167,6 +1833,10 @@ public class EditorEventManager {
         editor.removeEditorMouseListener(mouseListener);
         editor.removeEditorMouseMotionListener(mouseMotionListener);
         editor.getCaretModel().removeCaretListener(caretListener);
+        LookupManager.getInstance(project).removePropertyChangeListener(lookupChangeListener);
+        editor.getScrollingModel().removeVisibleAreaListener(visibleAreaListener);
+        cancelPendingResolve();
+        cancelHoverPrefetch();
         // TODO: Implement
         // editor.getSelectionModel.removeSelectionListener(selectionListener)
     }
@@ -1180,7 +1850,7 @@ public class EditorEventManager {
                 requestManager.didClose(new DidCloseTextDocumentParams(identifier));
                 isOpen = false;
                 EditorEventManagerBase.editorToManager.remove(editor);
-                EditorEventManagerBase.uriToManager.remove(FileUtils.editorToURIString(editor));
+                EditorEventManagerBase.uriToManager.remove(identifier.getUri());
             } else {
                 LOG.warn("Editor " + identifier.getUri() + " was already closed");
             }
@@ -1205,6 +1875,41 @@ public class EditorEventManager {
         });
     }
 
+    /**
+     * Moves the document to the given uri, after its file was renamed or moved. The server is notified by closing the
+     * document under the old uri and opening it under the new one with the current content, hence the editor does not
+     * have to be reconnected.
+     * <p>
+     * The switch to the new uri and the notifications are done on the EDT, where the document changes are synced, so
+     * that no change can be sent for the new uri before it is opened.
+     *
+     * @param newUri The new uri of the document
+     */
+    public void documentMoved(String newUri) {
+        if (!ApplicationManager.getApplication().isDispatchThread()) {
+            invokeLater(() -> documentMoved(newUri));
+            return;
+        }
+        String oldUri = identifier.getUri();
+        if (oldUri.equals(newUri)) {
+            return;
+        }
+        identifier.setUri(newUri);
+        changesParams.getTextDocument().setUri(newUri);
+        EditorEventManagerBase.uriToManager.remove(oldUri);
+        EditorEventManagerBase.uriToManager.put(newUri, this);
+        hoverCache.clear();
+        definitionCache.clear();
+        if (!isOpen || editor.isDisposed()) {
+            return;
+        }
+        requestManager.didClose(new DidCloseTextDocumentParams(new TextDocumentIdentifier(oldUri)));
+        String extension = FileUtilRt.getExtension(PathUtil.getFileName(newUri));
+        String text = computableReadAction(() -> editor.getDocument().getText());
+        requestManager.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(newUri,
+                wrapper.serverDefinition.languageIdFor(extension), version++, text)));
+    }
+
     public void documentChanged(DocumentEvent event) {
         if (editor.isDisposed()) {
             return;
@@ -1212,6 +1917,14 @@ public class EditorEventManager {
         if (event.getDocument() == editor.getDocument()) {
             //Todo - restore when adding hover support
             // long predTime = System.nanoTime(); //So that there are no hover events while typing
+            hoverCache.clear();
+            definitionCache.clear();
+            cancelHoverPrefetch();
+            if (event.getDocument().isInBulkUpdate()) {
+                // Synced at once when the bulk update finishes.
+                bulkChangePending = true;
+                return;
+            }
             changesParams.getTextDocument().setVersion(version++);
 
             if (syncKind == TextDocumentSyncKind.Incremental) {
@@ -1249,6 +1962,20 @@ public class EditorEventManager {
         }
     }
 
+    /**
+     * Sends the changes made during a bulk update of the document as a single full content change.
+     */
+    public void documentBulkUpdateFinished() {
+        if (editor.isDisposed() || !bulkChangePending) {
+            return;
+        }
+        bulkChangePending = false;
+        changesParams.getTextDocument().setVersion(version++);
+        TextDocumentContentChangeEvent fullChange = new TextDocumentContentChangeEvent(editor.getDocument().getText());
+        requestManager.didChange(
+                new DidChangeTextDocumentParams(changesParams.getTextDocument(), Collections.singletonList(fullChange)));
+    }
+
     /**
      * Notifies the server that the corresponding document has been saved
      */
@@ -1332,71 +2059,77 @@ public class EditorEventManager {
             return;
         }
 
-        createCtrlRange(DocumentUtils.logicalToLSPPos(editor.xyToLogicalPosition(e.getMouseEvent().getPoint()), editor),
-                null);
-        final CtrlRangeMarker ctrlRange = getCtrlRange();
-
-        // TODO: [ms] possible duplicate
-        if (ctrlRange == null) {
-            int offset = editor.logicalPositionToOffset(editor.xyToLogicalPosition(e.getMouseEvent().getPoint()));
-            LSPReferencesAction referencesAction = (LSPReferencesAction) ActionManager.getInstance()
-                    .getAction("LSPFindUsages");
-            if (referencesAction != null) {
-                referencesAction.forManagerAndOffset(this, offset);
-            }
-            return;
-        }
-
-        Location loc = ctrlRange.location;
-        invokeLater(() -> {
-            if (editor.isDisposed()) {
-                return;
-            }
-
-            int offset = editor.logicalPositionToOffset(editor.xyToLogicalPosition(e.getMouseEvent().getPoint()));
-            String locUri = FileUtils.sanitizeURI(loc.getUri());
-
-            // use heuristic to determine if this is already the definition or a usage
-            if (identifier.getUri().equals(locUri)
-                    && offset >= DocumentUtils.LSPPosToOffset(editor, loc.getRange().getStart())
-                    && offset <= DocumentUtils.LSPPosToOffset(editor, loc.getRange().getEnd())) {
-                LSPReferencesAction referencesAction = (LSPReferencesAction) ActionManager.getInstance()
-                        .getAction("LSPFindUsages");
-                if (referencesAction != null) {
-                    referencesAction.forManagerAndOffset(this, offset);
-                }
-            } else {
-                VirtualFile file = null;
-                try {
-                    file = VfsUtil.findFileByURL(new URL(locUri));
-                } catch (MalformedURLException e1) {
-                    LOG.warn("Syntax Exception occurred for uri: " + locUri);
+        LogicalPosition lPos = editor.xyToLogicalPosition(e.getMouseEvent().getPoint());
+        int offset = editor.logicalPositionToOffset(lPos);
+        Position serverPos = DocumentUtils.logicalToLSPPos(lPos, editor);
+        // A Ctrl-hover on the same identifier already put the definitions into the cache.
+        pool(() -> {
+            Pair<TextRange, List<Location>> definitions = definitions(offset, serverPos);
+            invokeLater(() -> {
+                if (editor.isDisposed()) {
+                    return;
                 }
-                if (file != null) {
-                    OpenFileDescriptor descriptor = new OpenFileDescriptor(project, file);
-                    VirtualFile finalFile = file;
-                    writeAction(() -> {
-                        FileEditorManager.getInstance(project).openTextEditor(descriptor, true);
-                        Editor srcEditor = FileUtils.editorFromVirtualFile(finalFile, project);
-                        if (srcEditor != null) {
-                            Position start = loc.getRange().getStart();
-                            LogicalPosition logicalPos = DocumentUtils.getTabsAwarePosition(srcEditor, start);
-                            if (logicalPos != null) {
-                                srcEditor.getCaretModel().moveToLogicalPosition(logicalPos);
-                                srcEditor.getScrollingModel().scrollTo(logicalPos, ScrollType.CENTER);
-                            }
-                        }
-                    });
+                if (definitions == null || definitions.getSecond().isEmpty()
+                        || isDefinitionOffset(definitions.getSecond(), offset)) {
+                    // use heuristic to determine if this is already the definition or a usage
+                    LSPReferencesAction referencesAction = (LSPReferencesAction) ActionManager.getInstance()
+                            .getAction("LSPFindUsages");
+                    if (referencesAction != null) {
+                        referencesAction.forManagerAndOffset(this, offset);
+                    }
+                } else if (definitions.getSecond().size() == 1) {
+                    navigateTo(definitions.getSecond().get(0));
                 } else {
-                    LOG.warn("Empty file for " + locUri);
+                    JBPopupFactory.getInstance().createPopupChooserBuilder(definitions.getSecond())
+                            .setTitle("Choose Definition")
+                            .setRenderer(SimpleListCellRenderer.create("", location ->
+                                    FileUtils.shortenFileUri(FileUtils.sanitizeURI(location.getUri())) + ":"
+                                            + (location.getRange().getStart().getLine() + 1)))
+                            .setItemChosenCallback(this::navigateTo)
+                            .createPopup()
+                            .showInBestPositionFor(editor);
                 }
-            }
 
-            ctrlRange.dispose();
-            setCtrlRange(null);
+                CtrlRangeMarker ctrlRange = getCtrlRange();
+                if (ctrlRange != null) {
+                    ctrlRange.dispose();
+                    setCtrlRange(null);
+                }
+            });
         });
     }
 
+    /**
+     * Opens the file of the given location and moves the caret to the start of the location
+     */
+    private void navigateTo(Location loc) {
+        String locUri = FileUtils.sanitizeURI(loc.getUri());
+        VirtualFile file = null;
+        try {
+            file = VfsUtil.findFileByURL(new URL(locUri));
+        } catch (MalformedURLException e1) {
+            LOG.warn("Syntax Exception occurred for uri: " + locUri);
+        }
+        if (file != null) {
+            OpenFileDescriptor descriptor = new OpenFileDescriptor(project, file);
+            VirtualFile finalFile = file;
+            writeAction(() -> {
+                FileEditorManager.getInstance(project).openTextEditor(descriptor, true);
+                Editor srcEditor = FileUtils.editorFromVirtualFile(finalFile, project);
+                if (srcEditor != null) {
+                    Position start = loc.getRange().getStart();
+                    LogicalPosition logicalPos = DocumentUtils.getTabsAwarePosition(srcEditor, start);
+                    if (logicalPos != null) {
+                        srcEditor.getCaretModel().moveToLogicalPosition(logicalPos);
+                        srcEditor.getScrollingModel().scrollTo(logicalPos, ScrollType.CENTER);
+                    }
+                }
+            });
+        } else {
+            LOG.warn("Empty file for " + locUri);
+        }
+    }
+
     public void requestAndShowCodeActions() {
         invokeLater(() -> {
             if (editor.isDisposed()) {
@@ -1477,57 +2210,14 @@ public class EditorEventManager {
         });
     }
 
-    public List<String> getCompletionTriggers() {
-        return completionTriggers;
-    }
-
-    private static class LSPTextEdit implements Comparable<LSPTextEdit> {
-        private final String text;
-        private final int startOffset;
-        private final int endOffset;
-
-        LSPTextEdit(String text, int start, int end) {
-            this.text = text;
-            this.startOffset = start;
-            this.endOffset = end;
-        }
-
-        String getText() {
-            return text;
-        }
-
-        int getStartOffset() {
-            return startOffset;
-        }
-
-        int getEndOffset() {
-            return endOffset;
-        }
-
-        @Override
-        public int compareTo(@NotNull LSPTextEdit te) {
-            return te.getStartOffset() - getStartOffset();
-        }
+    /**
+     * @return The version of the document last sent to the server
+     */
+    public int getVersion() {
+        return version;
     }
 
-    static class SnippetVariable {
-        private final String lspSnippetText;
-        private final int startIndex;
-        private final int endIndex;
-        private final String variableValue;
-
-        SnippetVariable(String text, int start, int end) {
-            this.lspSnippetText = text;
-            this.startIndex = start;
-            this.endIndex = end;
-            this.variableValue = getVariableValue(text);
-        }
-
-        private String getVariableValue(String lspVarSnippet) {
-            if (lspVarSnippet.contains(":")) {
-                return lspVarSnippet.substring(lspVarSnippet.indexOf(':') + 1, lspVarSnippet.lastIndexOf('}'));
-            }
-            return " ";
-        }
+    public List<String> getCompletionTriggers() {
+        return completionTriggers;
     }
 }
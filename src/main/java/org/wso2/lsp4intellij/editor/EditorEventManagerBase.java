@@ -15,12 +15,27 @@
  */
 package org.wso2.lsp4intellij.editor;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.ex.EditorSettingsExternalizable;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileTypeEvent;
+import com.intellij.openapi.fileTypes.FileTypeListener;
+import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.messages.MessageBusConnection;
+import org.jetbrains.annotations.NotNull;
 import org.wso2.lsp4intellij.utils.OSUtils;
 
 import java.awt.KeyboardFocusManager;
 import java.awt.event.KeyEvent;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,6 +45,7 @@ public class EditorEventManagerBase {
     public static final Map<Editor, EditorEventManager> editorToManager = new ConcurrentHashMap<>();
     private static final int CTRL_KEY_CODE = OSUtils.isMac() ? KeyEvent.VK_META : KeyEvent.VK_CONTROL;
     protected static final long CTRL_THRESH = EditorSettingsExternalizable.getInstance().getQuickDocOnMouseOverElementDelayMillis() * 1000000;
+    // Read on every mouse move, hence plain volatile fields rather than synchronized accessors.
     private volatile static boolean isKeyPressed = false;
     private volatile static boolean isCtrlDown = false;
     private volatile static CtrlRangeMarker ctrlRange;
@@ -46,37 +62,71 @@ public class EditorEventManagerBase {
                 setIsKeyPressed(false);
                 if (e.getKeyCode() == CTRL_KEY_CODE) {
                     setIsCtrlDown(false);
-                    if (getCtrlRange() != null) {
-                        getCtrlRange().dispose();
+                    CtrlRangeMarker range = getCtrlRange();
+                    if (range != null) {
+                        range.dispose();
                         setCtrlRange(null);
                     }
                 }
             }
             return false;
         });
+
+        // A single listener for all the editors, which only looks up the managers of the affected files.
+        MessageBusConnection connection = ApplicationManager.getApplication().getMessageBus().connect();
+        connection.subscribe(FileTypeManager.TOPIC, new FileTypeListener() {
+            @Override
+            public void fileTypesChanged(@NotNull FileTypeEvent event) {
+                editorToManager.values().forEach(EditorEventManager::resetHoverEligibility);
+            }
+        });
+        connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (event instanceof VFilePropertyChangeEvent && event.getFile() != null
+                            && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName())) {
+                        fileRenamed(event.getFile());
+                    }
+                }
+            }
+        });
+    }
+
+    private static void fileRenamed(VirtualFile file) {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        if (document == null) {
+            return;
+        }
+        for (Editor editor : EditorFactory.getInstance().getEditors(document)) {
+            EditorEventManager manager = editorToManager.get(editor);
+            if (manager != null) {
+                manager.resetHoverEligibility();
+            }
+        }
     }
 
-    static synchronized CtrlRangeMarker getCtrlRange() {
+    static CtrlRangeMarker getCtrlRange() {
         return ctrlRange;
     }
 
-    static synchronized void setCtrlRange(CtrlRangeMarker ctrlRange) {
+    static void setCtrlRange(CtrlRangeMarker ctrlRange) {
         EditorEventManagerBase.ctrlRange = ctrlRange;
     }
 
-    static synchronized boolean getIsCtrlDown() {
+    static boolean getIsCtrlDown() {
         return isCtrlDown;
     }
 
-    static synchronized void setIsCtrlDown(boolean isCtrlDown) {
+    static void setIsCtrlDown(boolean isCtrlDown) {
         EditorEventManagerBase.isCtrlDown = isCtrlDown;
     }
 
-    static synchronized boolean getIsKeyPressed() {
+    static boolean getIsKeyPressed() {
         return isKeyPressed;
     }
 
-    static synchronized void setIsKeyPressed(boolean isKeyPressed) {
+    static void setIsKeyPressed(boolean isKeyPressed) {
         EditorEventManagerBase.isKeyPressed = isKeyPressed;
     }
 
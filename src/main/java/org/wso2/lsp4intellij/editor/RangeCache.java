@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.editor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Results of position based requests (e.g. hover, definition) of a single document, keyed by the document version
+ * and the range the result applies to. Entries of older versions are never returned, and the cache is cleared
+ * whenever the document changes.
+ *
+ * @param <V> The type of the cached results
+ */
+class RangeCache<V> {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private final Deque<Entry<V>> entries = new ArrayDeque<>();
+
+    /**
+     * @return The cached result for the given offset, or null if the offset is not covered
+     */
+    synchronized V get(int version, int offset) {
+        for (Entry<V> entry : entries) {
+            if (entry.version == version && entry.startOffset <= offset && offset < entry.endOffset) {
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    synchronized void put(int version, int startOffset, int endOffset, V value) {
+        Iterator<Entry<V>> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (entry.version != version || (entry.startOffset == startOffset && entry.endOffset == endOffset)) {
+                iterator.remove();
+            }
+        }
+        entries.addFirst(new Entry<>(version, startOffset, endOffset, value));
+        if (entries.size() > MAX_ENTRIES) {
+            entries.removeLast();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private static class Entry<V> {
+        private final int version;
+        private final int startOffset;
+        private final int endOffset;
+        private final V value;
+
+        Entry(int version, int startOffset, int endOffset, V value) {
+            this.version = version;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.value = value;
+        }
+    }
+}
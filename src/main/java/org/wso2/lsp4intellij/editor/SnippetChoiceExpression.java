@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.editor;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.codeInsight.template.Expression;
+import com.intellij.codeInsight.template.ExpressionContext;
+import com.intellij.codeInsight.template.Result;
+import com.intellij.codeInsight.template.TextResult;
+
+import java.util.List;
+
+/**
+ * Template expression for a snippet choice (${1|one,two|}), which defaults to the first choice and offers all the
+ * choices as lookup items.
+ */
+class SnippetChoiceExpression extends Expression {
+
+    private final List<String> choices;
+
+    SnippetChoiceExpression(List<String> choices) {
+        this.choices = choices;
+    }
+
+    @Override
+    public Result calculateResult(ExpressionContext context) {
+        return new TextResult(choices.get(0));
+    }
+
+    @Override
+    public Result calculateQuickResult(ExpressionContext context) {
+        return calculateResult(context);
+    }
+
+    @Override
+    public LookupElement[] calculateLookupItems(ExpressionContext context) {
+        return choices.stream().map(LookupElementBuilder::create).toArray(LookupElement[]::new);
+    }
+}
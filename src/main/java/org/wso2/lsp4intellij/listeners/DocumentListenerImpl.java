@@ -15,8 +15,10 @@
  */
 package org.wso2.lsp4intellij.listeners;
 
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
+import org.jetbrains.annotations.NotNull;
 
 public class DocumentListenerImpl extends LSPListener implements DocumentListener {
 
@@ -40,4 +42,16 @@ public class DocumentListenerImpl extends LSPListener implements DocumentListene
             manager.documentChanged(event);
         }
     }
+
+    /**
+     * Called when the bulk update of the document has finished.
+     *
+     * @param document the document.
+     */
+    @Override
+    public void bulkUpdateFinished(@NotNull Document document) {
+        if (checkEnabled()) {
+            manager.documentBulkUpdateFinished();
+        }
+    }
 }
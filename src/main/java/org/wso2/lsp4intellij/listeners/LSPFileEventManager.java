@@ -20,33 +20,38 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
-import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.io.FileUtilRt;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileMoveEvent;
-import com.intellij.psi.PsiFile;
+import com.intellij.util.PathUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
 import org.eclipse.lsp4j.FileChangeType;
 import org.eclipse.lsp4j.FileEvent;
-import org.jetbrains.annotations.NotNull;
 import org.wso2.lsp4intellij.IntellijLanguageClient;
 import org.wso2.lsp4intellij.client.languageserver.ServerStatus;
 import org.wso2.lsp4intellij.client.languageserver.wrapper.LanguageServerWrapper;
+import org.wso2.lsp4intellij.contributors.symbol.WorkspaceSymbolIndex;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
 import org.wso2.lsp4intellij.utils.ApplicationUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import static org.wso2.lsp4intellij.utils.FileUtils.searchFiles;
-
 class LSPFileEventManager {
 
     private static final Logger LOG = Logger.getInstance(LSPFileEventManager.class);
+    // Time window in milliseconds during which the file events are collected into a single notification.
+    private static final long BATCH_WINDOW = 200;
+    private static final Map<String, PendingEvent> pendingEvents = new LinkedHashMap<>();
+    private static boolean flushScheduled = false;
 
     /**
      * Indicates that a document will be saved
@@ -74,143 +79,118 @@ class LSPFileEventManager {
      * @param file The file
      */
     static void fileChanged(VirtualFile file) {
+        queueEvent(file, FileChangeType.Changed);
+    }
 
-        if (!FileUtils.isFileSupported(file)) {
-            return;
-        }
-        String uri = FileUtils.VFSToURI(file);
-        if (uri == null) {
-            return;
-        }
+    /**
+     * Called when a file is moved. Notifies the server if this file was watched, and moves the open document to the
+     * new uri.
+     *
+     * @param file    The moved file
+     * @param oldPath The path of the file before the move
+     */
+    static void fileMoved(VirtualFile file, String oldPath) {
+        fileRelocated(file, oldPath);
+    }
 
-        ApplicationUtils.invokeAfterPsiEvents(() -> {
-            EditorEventManager manager = EditorEventManagerBase.forUri(uri);
-            if (manager != null) {
-                manager.documentSaved();
-                FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(uri,
-                    FileUtils.projectToUri(p), FileChangeType.Changed));
-            } else {
-                FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(uri,
-                    FileUtils.projectToUri(p), FileChangeType.Changed));
-            }
-        });
+    /**
+     * Called when a file is deleted. Notifies the server if this file was watched.
+     *
+     * @param file The file
+     */
+    static void fileDeleted(VirtualFile file) {
+        queueEvent(file, FileChangeType.Deleted);
     }
 
     /**
-     * Called when a file is moved. Notifies the server if this file was watched.
+     * Called when a file is renamed. Notifies the server if this file was watched, and moves the open document to the
+     * new uri.
      *
-     * @param event The file move event
+     * @param file    The renamed file
+     * @param oldPath The path of the file before the rename
      */
-    static void fileMoved(VirtualFileMoveEvent event) {
+    static void fileRenamed(VirtualFile file, String oldPath) {
+        fileRelocated(file, oldPath);
+    }
+
+    /**
+     * Handles a file which has been renamed or moved, using the old path of the VFS event.
+     * <p>
+     * The document of an open editor is rebound to the new uri in place (i.e. closed under the old uri and opened under
+     * the new one with the current content), hence the editor keeps its state. If the file type changed, the editor
+     * is reopened instead, since the new file may be handled by another server, or by none.
+     */
+    private static void fileRelocated(VirtualFile file, String oldPath) {
         try {
-            VirtualFile file = event.getFile();
-            if (!FileUtils.isFileSupported(file)) {
+            String newFileUri = FileUtils.VFSToURI(file);
+            String oldFileUri = FileUtils.pathToUri(oldPath);
+            if (newFileUri == null || oldFileUri == null || newFileUri.equals(oldFileUri)) {
                 return;
             }
-
-            String newFileUri = FileUtils.VFSToURI(file);
-            String oldParentUri = FileUtils.VFSToURI(event.getOldParent());
-            if (newFileUri == null || oldParentUri == null) {
+            if (file.isDirectory()) {
+                directoryRelocated(file, oldFileUri, newFileUri);
+                return;
+            }
+            boolean sameType = FileUtilRt.getExtension(PathUtil.getFileName(oldPath))
+                    .equals(FileUtilRt.getExtension(file.getName()));
+            boolean supported = FileUtils.isFileSupported(file);
+            if (!supported && (sameType || EditorEventManagerBase.forUri(oldFileUri) == null)) {
                 return;
             }
-            String oldFileUri = String.format("%s/%s", oldParentUri, event.getFileName());
 
-            ApplicationUtils.invokeAfterPsiEvents(() -> {
+            ApplicationUtils.invokeAfterPsiEvents(() -> FileUtils.findProjectsFor(file).forEach(p -> {
+                String projectUri = FileUtils.projectToUri(p);
                 // Notifies the language server.
-                FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(oldFileUri,
-                    FileUtils.projectToUri(p), FileChangeType.Deleted));
-                FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(newFileUri,
-                    FileUtils.projectToUri(p), FileChangeType.Created));
-
-                FileUtils.findProjectsFor(file).forEach(p -> {
-                    // Detaches old file from the wrappers.
-                    Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(FileUtils.projectToUri(p));
-                    wrappers.forEach(wrapper -> wrapper.disconnect(oldFileUri, FileUtils.projectToUri(p)));
-                    // Re-open file to so that the new editor will be connected to the language server.
-                    FileEditorManager fileEditorManager = FileEditorManager.getInstance(p);
+                changedConfiguration(oldFileUri, projectUri, FileChangeType.Deleted);
+                if (supported) {
+                    changedConfiguration(newFileUri, projectUri, FileChangeType.Created);
+                }
+
+                Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class)
+                        .getAllServerWrappersFor(projectUri);
+                if (sameType) {
+                    wrappers.forEach(wrapper -> wrapper.rebind(oldFileUri, newFileUri, projectUri));
+                    return;
+                }
+                // Detaches old file from the wrappers.
+                wrappers.forEach(wrapper -> wrapper.disconnect(oldFileUri, projectUri));
+                FileEditorManager fileEditorManager = FileEditorManager.getInstance(p);
+                if (supported && fileEditorManager.isFileOpen(file)) {
+                    // Re-opens the file so that the new editor will be connected to the language server.
                     ApplicationUtils.invokeLater(() -> {
                         fileEditorManager.closeFile(file);
                         fileEditorManager.openFile(file, true);
                     });
-                });
-            });
+                }
+            }));
         } catch (Exception e) {
             LOG.warn("LSP file move event failed due to :", e);
         }
     }
 
     /**
-     * Called when a file is deleted. Notifies the server if this file was watched.
-     *
-     * @param file The file
+     * Handles a directory which has been renamed or moved. The VFS only reports the directory itself, hence each open
+     * document under the old directory uri is rebound to its new uri, as done for a single file of the same type.
      */
-    static void fileDeleted(VirtualFile file) {
-        if (!FileUtils.isFileSupported(file)) {
-            return;
-        }
-        String uri = FileUtils.VFSToURI(file);
-        if (uri == null) {
+    private static void directoryRelocated(VirtualFile dir, String oldDirUri, String newDirUri) {
+        String oldPrefix = oldDirUri.endsWith("/") ? oldDirUri : oldDirUri + "/";
+        String newPrefix = newDirUri.endsWith("/") ? newDirUri : newDirUri + "/";
+        List<String> oldUris = EditorEventManagerBase.uriToManager.keySet().stream()
+                .filter(uri -> uri.startsWith(oldPrefix)).collect(Collectors.toList());
+        if (oldUris.isEmpty()) {
             return;
         }
-        ApplicationUtils.invokeAfterPsiEvents(() -> FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(uri,
-                FileUtils.projectToUri(p), FileChangeType.Deleted)));
-    }
-
-    /**
-     * Called when a file is renamed. Notifies the server if this file was watched.
-     *
-     * @param oldFileName The old file name
-     * @param newFileName the new file name
-     */
-    static void fileRenamed(String oldFileName, String newFileName) {
-        ApplicationUtils.invokeAfterPsiEvents(() -> {
-            try {
-                // Getting the right file is not trivial here since we only have the file name. Since we have to iterate over
-                // all opened projects and filter based on the file name.
-                Set<VirtualFile> files = Arrays.stream(ProjectManager.getInstance().getOpenProjects())
-                    .flatMap(p -> Arrays.stream(searchFiles(newFileName, p)))
-                    .map(PsiFile::getVirtualFile)
-                    .collect(Collectors.toSet());
-
-                for (VirtualFile file : files) {
-                    if (!FileUtils.isFileSupported(file)) {
-                        continue;
-                    }
-                    String newFileUri = FileUtils.VFSToURI(file);
-                    String oldFileUri = newFileUri.replace(file.getName(), oldFileName);
-
-                    // Notifies the language server.
-                    FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(oldFileUri,
-                        FileUtils.projectToUri(p), FileChangeType.Deleted));
-                    FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(newFileUri,
-                        FileUtils.projectToUri(p), FileChangeType.Created));
-
-                    FileUtils.findProjectsFor(file).forEach(p -> {
-                        // Detaches old file from the wrappers.
-                        Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(FileUtils.projectToUri(p));
-                        wrappers.forEach(wrapper -> {
-                            // make these calls first since the disconnect might stop the LS client if its last file.
-                            wrapper.getRequestManager().didChangeWatchedFiles(
-                                    getDidChangeWatchedFilesParams(oldFileUri, FileChangeType.Deleted));
-                            wrapper.getRequestManager().didChangeWatchedFiles(
-                                    getDidChangeWatchedFilesParams(newFileUri, FileChangeType.Created));
-
-                            wrapper.disconnect(oldFileUri, FileUtils.projectToUri(p));
-                        });
-                        if (!newFileUri.equals(oldFileUri)) {
-                            // Re-open file to so that the new editor will be connected to the language server.
-                            FileEditorManager fileEditorManager = FileEditorManager.getInstance(p);
-                            ApplicationUtils.invokeLater(() -> {
-                                fileEditorManager.closeFile(file);
-                                fileEditorManager.openFile(file, true);
-                            });
-                        }
-                    });
-                }
-            } catch (Exception e) {
-                LOG.warn("LSP file rename event failed due to : ", e);
+        ApplicationUtils.invokeAfterPsiEvents(() -> FileUtils.findProjectsFor(dir).forEach(p -> {
+            String projectUri = FileUtils.projectToUri(p);
+            Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class)
+                    .getAllServerWrappersFor(projectUri);
+            for (String oldUri : oldUris) {
+                String newUri = newPrefix + oldUri.substring(oldPrefix.length());
+                changedConfiguration(oldUri, projectUri, FileChangeType.Deleted);
+                changedConfiguration(newUri, projectUri, FileChangeType.Created);
+                wrappers.forEach(wrapper -> wrapper.rebind(oldUri, newUri, projectUri));
             }
-        });
+        }));
     }
 
     /**
@@ -219,19 +199,89 @@ class LSPFileEventManager {
      * @param file The file
      */
     static void fileCreated(VirtualFile file) {
+        queueEvent(file, FileChangeType.Created);
+    }
+
+    private static void queueEvent(VirtualFile file, FileChangeType typ) {
         if (!FileUtils.isFileSupported(file)) {
             return;
         }
         String uri = FileUtils.VFSToURI(file);
         if (uri != null) {
-            ApplicationUtils.invokeAfterPsiEvents(() -> FileUtils.findProjectsFor(file).forEach(p -> changedConfiguration(uri,
-                    FileUtils.projectToUri(p), FileChangeType.Created)));
+            queueEvent(uri, file, null, typ);
         }
     }
 
     private static void changedConfiguration(String uri, String projectUri, FileChangeType typ) {
-        ApplicationUtils.pool(() -> {
-            DidChangeWatchedFilesParams params = getDidChangeWatchedFilesParams(uri, typ);
+        queueEvent(uri, null, projectUri, typ);
+    }
+
+    /**
+     * Adds a file event to the pending batch, merging it with a pending event of the same file, and schedules the
+     * batch to be sent. The projects of the file are either given or looked up when the batch is sent.
+     */
+    private static void queueEvent(String uri, VirtualFile file, String projectUri, FileChangeType typ) {
+        synchronized (pendingEvents) {
+            PendingEvent pending = pendingEvents.get(uri);
+            FileChangeType merged = pending == null ? typ : merge(pending.type, typ);
+            if (merged == null) {
+                // Created and deleted within the same batch.
+                pendingEvents.remove(uri);
+            } else if (pending == null) {
+                pendingEvents.put(uri, new PendingEvent(merged, file, projectUri));
+            } else {
+                pending.type = merged;
+                pending.addSource(file, projectUri);
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                AppExecutorUtil.getAppScheduledExecutorService().schedule(
+                        () -> ApplicationUtils.pool(LSPFileEventManager::flushEvents), BATCH_WINDOW,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Returns the resulting change of two consecutive changes of a file, or null if they cancel out.
+     */
+    private static FileChangeType merge(FileChangeType previous, FileChangeType next) {
+        if (previous == FileChangeType.Created) {
+            return next == FileChangeType.Deleted ? null : FileChangeType.Created;
+        } else if (previous == FileChangeType.Deleted) {
+            return next == FileChangeType.Deleted ? FileChangeType.Deleted : FileChangeType.Changed;
+        }
+        return next;
+    }
+
+    /**
+     * Sends the pending file events, as a single notification per server.
+     */
+    private static void flushEvents() {
+        Map<String, PendingEvent> events;
+        synchronized (pendingEvents) {
+            events = new LinkedHashMap<>(pendingEvents);
+            pendingEvents.clear();
+            flushScheduled = false;
+        }
+        Map<String, List<FileEvent>> eventsByProject = new LinkedHashMap<>();
+        events.forEach((uri, event) -> {
+            if (event.type == FileChangeType.Changed) {
+                EditorEventManager manager = EditorEventManagerBase.forUri(uri);
+                if (manager != null) {
+                    manager.documentSaved();
+                }
+            }
+            Set<String> projectUris = new LinkedHashSet<>(event.projectUris);
+            event.files.forEach(file -> FileUtils.findProjectsFor(file)
+                    .forEach(p -> projectUris.add(FileUtils.projectToUri(p))));
+            projectUris.forEach(projectUri -> eventsByProject.computeIfAbsent(projectUri, k -> new ArrayList<>())
+                    .add(new FileEvent(uri, event.type)));
+        });
+
+        eventsByProject.forEach((projectUri, fileEvents) -> {
+            fileEvents.forEach(e -> WorkspaceSymbolIndex.fileChanged(projectUri, e.getUri(), e.getType()));
+            DidChangeWatchedFilesParams params = new DidChangeWatchedFilesParams(fileEvents);
             Set<LanguageServerWrapper> wrappers = ServiceManager.getService(IntellijLanguageClient.class).getAllServerWrappersFor(projectUri);
             for (LanguageServerWrapper wrapper : wrappers) {
                 if (wrapper.getRequestManager() != null
@@ -242,10 +292,26 @@ class LSPFileEventManager {
         });
     }
 
-    @NotNull
-    private static DidChangeWatchedFilesParams getDidChangeWatchedFilesParams(String fileUri, FileChangeType typ) {
-        List<FileEvent> event = new ArrayList<>();
-        event.add(new FileEvent(fileUri, typ));
-        return new DidChangeWatchedFilesParams(event);
+    /**
+     * A file event waiting to be sent, with the files or projects it has to be sent for.
+     */
+    private static class PendingEvent {
+        private FileChangeType type;
+        private final Set<VirtualFile> files = new LinkedHashSet<>();
+        private final Set<String> projectUris = new LinkedHashSet<>();
+
+        PendingEvent(FileChangeType type, VirtualFile file, String projectUri) {
+            this.type = type;
+            addSource(file, projectUri);
+        }
+
+        void addSource(VirtualFile file, String projectUri) {
+            if (file != null) {
+                files.add(file);
+            }
+            if (projectUri != null) {
+                projectUris.add(projectUri);
+            }
+        }
     }
 }
@@ -15,10 +15,13 @@
  */
 package org.wso2.lsp4intellij.listeners;
 
+import com.intellij.ProjectTopics;
 import com.intellij.openapi.components.ServiceManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManagerListener;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.wso2.lsp4intellij.IntellijLanguageClient;
@@ -32,7 +35,21 @@ public class LSPProjectManagerListener implements ProjectManagerListener {
 
     @Override
     public void projectOpened(@Nullable final Project project) {
-        // Todo
+        FileUtils.invalidateContentRoots();
+        if (project == null) {
+            return;
+        }
+        project.getMessageBus().connect(project).subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+            @Override
+            public void rootsChanged(@NotNull ModuleRootEvent event) {
+                FileUtils.invalidateContentRoots();
+            }
+        });
+    }
+
+    @Override
+    public void projectClosed(@NotNull Project project) {
+        FileUtils.invalidateContentRoots();
     }
 
     @Override
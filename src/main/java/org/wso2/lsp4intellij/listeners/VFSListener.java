@@ -16,111 +16,55 @@
 package org.wso2.lsp4intellij.listeners;
 
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileCopyEvent;
-import com.intellij.openapi.vfs.VirtualFileEvent;
-import com.intellij.openapi.vfs.VirtualFileListener;
-import com.intellij.openapi.vfs.VirtualFileMoveEvent;
-import com.intellij.openapi.vfs.VirtualFilePropertyEvent;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
 import org.jetbrains.annotations.NotNull;
 
-public class VFSListener implements VirtualFileListener {
+import java.util.List;
 
-    /**
-     * Fired when a virtual file is renamed from within IDEA, or its writable status is changed.
-     * For files renamed externally, {@link #fileCreated} and {@link #fileDeleted} events will be fired.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void propertyChanged(@NotNull VirtualFilePropertyEvent event) {
-        if (event.getPropertyName().equals(VirtualFile.PROP_NAME)) {
-            LSPFileEventManager.fileRenamed((String) event.getOldValue(), (String) event.getNewValue());
-        }
-    }
-
-    /**
-     * Fired when the contents of a virtual file is changed.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void contentsChanged(@NotNull VirtualFileEvent event) {
-        LSPFileEventManager.fileChanged(event.getFile());
-    }
-
-    /**
-     * Fired when a virtual file is deleted.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void fileDeleted(@NotNull VirtualFileEvent event) {
-        LSPFileEventManager.fileDeleted(event.getFile());
-    }
-
-    /**
-     * Fired when a virtual file is moved from within IDEA.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void fileMoved(@NotNull VirtualFileMoveEvent event) {
-        LSPFileEventManager.fileMoved(event);
-    }
-
-    /**
-     * Fired when a virtual file is copied from within IDEA.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void fileCopied(@NotNull VirtualFileCopyEvent event) {
-        fileCreated(event);
-    }
-
-    /**
-     * Fired when a virtual file is created. This event is not fired for files discovered during initial VFS initialization.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void fileCreated(@NotNull VirtualFileEvent event) {
-        LSPFileEventManager.fileCreated(event.getFile());
-    }
-
-    /**
-     * Fired before the change of a name or writable status of a file is processed.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void beforePropertyChange(@NotNull VirtualFilePropertyEvent event) {
-    }
-
-    /**
-     * Fired before the change of contents of a file is processed.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void beforeContentsChange(@NotNull VirtualFileEvent event) {
-    }
-
-    /**
-     * Fired before the deletion of a file is processed.
-     *
-     * @param event the event object containing information about the change.
-     */
-    @Override
-    public void beforeFileDeletion(@NotNull VirtualFileEvent event) {
-    }
+/**
+ * Listens to the VFS changes in bulk. The resulting file events are batched by {@link LSPFileEventManager}, hence a
+ * large change (e.g. a VCS checkout) results in a single notification per server.
+ */
+public class VFSListener implements BulkFileListener {
 
     /**
-     * Fired before the movement of a file is processed.
+     * Fired after a batch of VFS changes has been applied.
      *
-     * @param event the event object containing information about the change.
+     * @param events the events of the batch.
      */
     @Override
-    public void beforeFileMovement(@NotNull VirtualFileMoveEvent event) {
+    public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+            if (event instanceof VFileContentChangeEvent) {
+                LSPFileEventManager.fileChanged(event.getFile());
+            } else if (event instanceof VFileCreateEvent) {
+                LSPFileEventManager.fileCreated(event.getFile());
+            } else if (event instanceof VFileCopyEvent) {
+                VFileCopyEvent copyEvent = (VFileCopyEvent) event;
+                LSPFileEventManager.fileCreated(copyEvent.getNewParent().findChild(copyEvent.getNewChildName()));
+            } else if (event instanceof VFileDeleteEvent) {
+                LSPFileEventManager.fileDeleted(event.getFile());
+            } else if (event instanceof VFileMoveEvent) {
+                VFileMoveEvent moveEvent = (VFileMoveEvent) event;
+                LSPFileEventManager.fileMoved(moveEvent.getFile(),
+                        moveEvent.getOldParent().getPath() + "/" + moveEvent.getFile().getName());
+            } else if (event instanceof VFilePropertyChangeEvent) {
+                // Fired when a file is renamed from within IDEA. For files renamed externally, creation and deletion
+                // events are fired.
+                VFilePropertyChangeEvent propertyEvent = (VFilePropertyChangeEvent) event;
+                VirtualFile parent = propertyEvent.getFile().getParent();
+                if (VirtualFile.PROP_NAME.equals(propertyEvent.getPropertyName()) && parent != null) {
+                    LSPFileEventManager.fileRenamed(propertyEvent.getFile(),
+                            parent.getPath() + "/" + propertyEvent.getOldValue());
+                }
+            }
+        }
     }
 }
@@ -16,24 +16,48 @@
 package org.wso2.lsp4intellij.requests;
 
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.text.StringUtil;
 import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.options.MutableDataSet;
 import org.eclipse.lsp4j.Hover;
 import org.eclipse.lsp4j.MarkedString;
 import org.eclipse.lsp4j.MarkupContent;
+import org.eclipse.lsp4j.MarkupKind;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.jsonrpc.validation.NonNull;
+import org.wso2.lsp4intellij.utils.WeightedLRUCache;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Object used to process Hover responses
  */
 public class HoverHandler {
 
-    private Logger LOG = Logger.getInstance(HoverHandler.class);
+    private static final Logger LOG = Logger.getInstance(HoverHandler.class);
+
+    // Budget of the render cache, in characters of markdown and HTML together.
+    private static final long RENDER_CACHE_CHARS = 2 * 1024 * 1024;
+
+    // Flexmark parsers and renderers are immutable once built and can be shared between threads.
+    private static final Parser PARSER;
+    private static final HtmlRenderer RENDERER;
+
+    static {
+        MutableDataSet options = new MutableDataSet();
+        PARSER = Parser.builder(options).build();
+        RENDERER = HtmlRenderer.builder(options).build();
+    }
+
+    // Markdown content to its rendered HTML. The content itself is used as the key (rather than only its hash) so
+    // that a hash collision can never show the documentation of another element.
+    private static final WeightedLRUCache<String, String> renderCache = new WeightedLRUCache<>(RENDER_CACHE_CHARS,
+            (markdown, html) -> markdown.length() + html.length());
 
     /**
      * Returns the hover string corresponding to an Hover response
@@ -42,6 +66,17 @@ public class HoverHandler {
      * @return The string response
      */
     public static String getHoverString(@NonNull Hover hover) {
+        return getHoverString(hover, null);
+    }
+
+    /**
+     * Returns the hover string corresponding to an Hover response
+     *
+     * @param hover      The Hover
+     * @param statistics The statistics to record the markdown renderings to, or null
+     * @return The string response
+     */
+    public static String getHoverString(@NonNull Hover hover, RenderStatistics statistics) {
         if (hover == null || hover.getContents() == null) {
             return "";
         }
@@ -60,11 +95,8 @@ public class HoverHandler {
                                 "```" + markedString.getLanguage() + " " + markedString.getValue() + "```" :
                                 "";
                     }
-                    MutableDataSet options = new MutableDataSet();
-                    Parser parser = Parser.builder(options).build();
-                    HtmlRenderer renderer = HtmlRenderer.builder(options).build();
                     if (!string.isEmpty()) {
-                        result.add(renderer.render(parser.parse(string)));
+                        result.add(renderMarkdown(string, statistics));
                     }
                 }
                 return "<html>" + String.join("\n\n", result) + "</html>";
@@ -72,13 +104,135 @@ public class HoverHandler {
                 return "";
             }
         } else if (hoverContents.isRight()) {
-            MutableDataSet options = new MutableDataSet();
-            Parser parser = Parser.builder(options).build();
-            HtmlRenderer renderer = HtmlRenderer.builder(options).build();
             String markedContent = hoverContents.getRight().getValue();
-            return "<html>" + renderer.render(parser.parse(markedContent)) + "</html>";
+            return "<html>" + renderMarkdown(markedContent, statistics) + "</html>";
         } else {
             return "";
         }
     }
+
+    /**
+     * Returns the documentation of a completion item as HTML (without the enclosing html tags). Markup content is
+     * rendered according to its kind, while plain strings are plain text, as per the protocol.
+     *
+     * @param documentation The documentation, or null
+     * @param statistics    The statistics to record the markdown renderings to, or null
+     * @return The HTML, empty if there is no documentation
+     */
+    public static String getDocumentationString(Either<String, MarkupContent> documentation,
+                                                RenderStatistics statistics) {
+        if (documentation == null) {
+            return "";
+        } else if (documentation.isLeft()) {
+            return plainTextToHtml(documentation.getLeft());
+        }
+        MarkupContent content = documentation.getRight();
+        if (content == null) {
+            return "";
+        }
+        return MarkupKind.MARKDOWN.equals(content.getKind()) ? renderMarkdown(content.getValue(), statistics) :
+                plainTextToHtml(content.getValue());
+    }
+
+    private static String plainTextToHtml(String text) {
+        return text == null || text.isEmpty() ? "" : "<pre>" + StringUtil.escapeXmlEntities(text) + "</pre>";
+    }
+
+    /**
+     * Renders the given markdown to HTML (without the enclosing html tags), reusing the result of a previous
+     * rendering of the same content if available.
+     */
+    private static String renderMarkdown(String markdown, RenderStatistics statistics) {
+        if (markdown == null || markdown.isEmpty()) {
+            return "";
+        }
+        String html = renderCache.get(markdown);
+        if (html != null) {
+            if (statistics != null) {
+                statistics.cacheHits.incrementAndGet();
+            }
+            return html;
+        }
+        long allocatedBefore = statistics != null ? statistics.allocatedBytes() : -1;
+        long start = System.nanoTime();
+        html = RENDERER.render(PARSER.parse(markdown));
+        if (statistics != null) {
+            statistics.renderNanos.addAndGet(System.nanoTime() - start);
+            if (allocatedBefore >= 0) {
+                statistics.renderAllocatedBytes.addAndGet(Math.max(0, statistics.allocatedBytes() - allocatedBefore));
+            }
+            statistics.renders.incrementAndGet();
+        }
+        renderCache.put(markdown, html);
+        return html;
+    }
+
+    /**
+     * Counters of the markdown renderings done for the hovers of a language server.
+     */
+    public static class RenderStatistics {
+
+        private final AtomicLong renders = new AtomicLong();
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong renderNanos = new AtomicLong();
+        private final AtomicLong renderAllocatedBytes = new AtomicLong();
+        private final com.sun.management.ThreadMXBean allocationBean;
+
+        public RenderStatistics() {
+            com.sun.management.ThreadMXBean bean = null;
+            try {
+                ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+                if (threadBean instanceof com.sun.management.ThreadMXBean &&
+                        ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+                    bean = (com.sun.management.ThreadMXBean) threadBean;
+                }
+            } catch (LinkageError e) {
+                LOG.info("Thread allocation measurement is not supported by this runtime");
+            }
+            allocationBean = bean;
+        }
+
+        /**
+         * @return The bytes allocated so far by the current thread, or -1 if it cannot be measured
+         */
+        private long allocatedBytes() {
+            if (allocationBean == null || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return -1;
+            }
+            return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        /**
+         * @return The number of markdown contents which were actually parsed and rendered
+         */
+        public long getRenderCount() {
+            return renders.get();
+        }
+
+        /**
+         * @return The number of renderings answered from the cache
+         */
+        public long getCacheHitCount() {
+            return cacheHits.get();
+        }
+
+        /**
+         * @return The average time spent on a rendering, in milliseconds
+         */
+        public double getAverageRenderMillis() {
+            long count = renders.get();
+            return count == 0 ? 0 : renderNanos.get() / 1_000_000.0 / count;
+        }
+
+        /**
+         * @return The average number of bytes allocated by a rendering, or -1 if allocations cannot be measured
+         */
+        public long getAverageAllocatedBytes() {
+            if (allocationBean == null) {
+                return -1;
+            }
+            long count = renders.get();
+            return count == 0 ? 0 : renderAllocatedBytes.get() / count;
+        }
+    }
 }
@@ -21,7 +21,7 @@ package org.wso2.lsp4intellij.requests;
 public enum Timeouts {
     CODEACTION(2000), CODELENS(2000), COMPLETION(1000), DEFINITION(2000), DOC_HIGHLIGHT(1000), EXECUTE_COMMAND(
             2000), FORMATTING(2000), HOVER(2000), INIT(10000), REFERENCES(2000), SIGNATURE(1000), SHUTDOWN(
-            5000), SYMBOLS(2000), WILLSAVE(2000), WORKSPACESYMBOLS(5000), IMPLEMENTATION(2000), FOLDING(2000);
+            5000), SYMBOLS(2000), WILLSAVE(2000), WORKSPACESYMBOLS(5000), IMPLEMENTATION(2000), FOLDING(2000), RENAME(2000);
 
   private final int defaultTimeout;
 
@@ -15,49 +15,71 @@
  */
 package org.wso2.lsp4intellij.requests;
 
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.command.UndoConfirmationPolicy;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditorManager;
-import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.project.ProjectUtil;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.refactoring.listeners.RefactoringElementListener;
 import com.intellij.usageView.UsageInfo;
+import com.intellij.util.DocumentUtil;
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.eclipse.lsp4j.CreateFile;
+import org.eclipse.lsp4j.CreateFileOptions;
+import org.eclipse.lsp4j.DeleteFile;
+import org.eclipse.lsp4j.DeleteFileOptions;
 import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.RenameFile;
+import org.eclipse.lsp4j.RenameFileOptions;
 import org.eclipse.lsp4j.ResourceOperation;
 import org.eclipse.lsp4j.TextDocumentEdit;
 import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
 import org.eclipse.lsp4j.WorkspaceEdit;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.jetbrains.annotations.NotNull;
 import org.wso2.lsp4intellij.contributors.psi.LSPPsiElement;
 import org.wso2.lsp4intellij.editor.EditorEventManager;
 import org.wso2.lsp4intellij.editor.EditorEventManagerBase;
-import org.wso2.lsp4intellij.utils.ApplicationUtils;
 import org.wso2.lsp4intellij.utils.DocumentUtils;
 import org.wso2.lsp4intellij.utils.FileUtils;
+import org.wso2.lsp4intellij.utils.LSPTextEdit;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.computableReadAction;
 import static org.wso2.lsp4intellij.utils.ApplicationUtils.invokeLater;
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.readAction;
 import static org.wso2.lsp4intellij.utils.ApplicationUtils.writeAction;
 
 /**
@@ -95,7 +117,12 @@ public class WorkspaceEditHandler {
                     }
                 });
                 WorkspaceEdit workspaceEdit = new WorkspaceEdit(edits);
-                applyEdit(workspaceEdit, "Rename " + lspElem.getName() + " to " + newName, openedEditors);
+                String name = "Rename " + lspElem.getName() + " to " + newName;
+                applyEditAsync(workspaceEdit, name, openedEditors).thenAccept(applied -> {
+                    if (!applied) {
+                        LOG.warn("Couldn't apply " + name);
+                    }
+                });
             }
         }
     }
@@ -105,118 +132,335 @@ public class WorkspaceEditHandler {
     }
 
     /**
-     * Applies a WorkspaceEdit
+     * Applies a WorkspaceEdit in the background, see {@link #applyEditAsync(WorkspaceEdit, String, List)}
      *
      * @param edit    The edit
      * @param name    edit name
      * @param toClose files to be closed
-     * @return True if everything was applied, false otherwise
+     * @return True if the edit was scheduled, false otherwise
      */
     public static boolean applyEdit(WorkspaceEdit edit, String name, List<VirtualFile> toClose) {
+        if (edit == null) {
+            return false;
+        }
+        applyEditAsync(edit, name, toClose);
+        return true;
+    }
+
+    public static CompletableFuture<Boolean> applyEditAsync(WorkspaceEdit edit, String name) {
+        return applyEditAsync(edit, name, new ArrayList<>());
+    }
+
+    /**
+     * Applies a WorkspaceEdit in two phases. The files are resolved, the document versions are validated and the
+     * ranges are converted to offsets for all the document edits in parallel, in a cancellable background task. Then
+     * the resource operations (create, rename, delete) and the text edits are applied in order, in a single write
+     * command on the EDT.
+     *
+     * @param edit    The edit
+     * @param name    edit name
+     * @param toClose files to be closed
+     * @return A future completed with true if everything was applied, false otherwise
+     */
+    public static CompletableFuture<Boolean> applyEditAsync(WorkspaceEdit edit, String name,
+                                                            List<VirtualFile> toClose) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (edit == null) {
+            result.complete(false);
+            return result;
+        }
         final String newName = (name != null) ? name : "LSP edits";
-        if (edit != null) {
-            Map<String, List<TextEdit>> changes = edit.getChanges();
-            List<Either<TextDocumentEdit, ResourceOperation>> dChanges = edit.getDocumentChanges();
-            boolean[] didApply = new boolean[]{true};
-
-            Project[] curProject = new Project[]{null};
-            List<VirtualFile> openedEditors = new ArrayList<>();
-
-            //Get the runnable of edits for each editor to apply them all in one command
-            List<Runnable> toApply = new ArrayList<>();
-            if (dChanges != null) {
-                dChanges.forEach(tEdit -> {
-                    if (tEdit.isLeft()) {
-                        TextDocumentEdit textEdit = tEdit.getLeft();
-                        VersionedTextDocumentIdentifier doc = textEdit.getTextDocument();
-                        int version = doc.getVersion() != null ? doc.getVersion() : Integer.MAX_VALUE;
-                        String uri = FileUtils.sanitizeURI(doc.getUri());
-                        EditorEventManager manager = EditorEventManagerBase.forUri(uri);
-                        if (manager != null) {
-                            curProject[0] = manager.editor.getProject();
-                            toApply.add(manager.getEditsRunnable(version, textEdit.getEdits(), newName, true));
-                        } else {
-                            toApply.add(
-                                    manageUnopenedEditor(textEdit.getEdits(), uri, version, openedEditors, curProject,
-                                            newName));
-                        }
-                    } else if (tEdit.isRight()) {
-                        ResourceOperation resourceOp = tEdit.getRight();
-                        //TODO
-                    } else {
-                        LOG.warn("Null edit");
+        List<EditOperation> operations = toOperations(edit);
+        Project project = operations.stream().map(op -> op.uri).filter(Objects::nonNull).findFirst()
+                .map(WorkspaceEditHandler::guessProject).orElse(null);
+
+        Task.Backgroundable task = new Task.Backgroundable(project, newName, true) {
+            private boolean prepared;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                prepared = prepare(operations, indicator);
+            }
+
+            @Override
+            public void onSuccess() {
+                if (!prepared) {
+                    result.complete(false);
+                    return;
+                }
+                boolean[] applied = new boolean[]{true};
+                writeAction(() -> {
+                    CommandProcessor.getInstance().executeCommand(project, () -> applied[0] = apply(operations),
+                            newName, "LSPPlugin", UndoConfirmationPolicy.DEFAULT, false);
+                    if (project != null) {
+                        toClose.forEach(f -> FileEditorManager.getInstance(project).closeFile(f));
                     }
                 });
+                result.complete(applied[0]);
+            }
 
-            } else if (changes != null) {
-                changes.forEach((key, lChanges) -> {
-                    String uri = FileUtils.sanitizeURI(key);
+            @Override
+            public void onCancel() {
+                result.complete(false);
+            }
 
-                    EditorEventManager manager = EditorEventManagerBase.forUri(uri);
-                    if (manager != null) {
-                        curProject[0] = manager.editor.getProject();
-                        toApply.add(manager.getEditsRunnable(Integer.MAX_VALUE, lChanges, newName, true));
-                    } else {
-                        toApply.add(manageUnopenedEditor(lChanges, uri, Integer.MAX_VALUE, openedEditors, curProject,
-                                newName));
+            @Override
+            public void onThrowable(@NotNull Throwable error) {
+                LOG.warn(error);
+                result.complete(false);
+            }
+        };
+        invokeLater(task::queue);
+        return result;
+    }
+
+    /**
+     * Flattens the edit into its operations, in the order they have to be applied.
+     */
+    private static List<EditOperation> toOperations(WorkspaceEdit edit) {
+        List<EditOperation> operations = new ArrayList<>();
+        List<Either<TextDocumentEdit, ResourceOperation>> dChanges = edit.getDocumentChanges();
+        if (dChanges != null) {
+            dChanges.forEach(change -> {
+                if (change == null) {
+                    LOG.warn("Null edit");
+                } else if (change.isLeft()) {
+                    VersionedTextDocumentIdentifier doc = change.getLeft().getTextDocument();
+                    int version = doc.getVersion() != null ? doc.getVersion() : Integer.MAX_VALUE;
+                    operations.add(new EditOperation(FileUtils.sanitizeURI(doc.getUri()), version,
+                            change.getLeft().getEdits(), null));
+                } else {
+                    operations.add(new EditOperation(resourceUri(change.getRight()), Integer.MAX_VALUE, null,
+                            change.getRight()));
+                }
+            });
+        } else if (edit.getChanges() != null) {
+            edit.getChanges().forEach((uri, edits) -> operations
+                    .add(new EditOperation(FileUtils.sanitizeURI(uri), Integer.MAX_VALUE, edits, null)));
+        }
+        return operations;
+    }
+
+    /**
+     * The first phase, run in parallel for all the document edits. Files which don't exist yet (e.g. created or
+     * renamed by a resource operation of the same edit) are resolved when applying.
+     *
+     * @return false if an edit can't be applied (outdated version, read-only document) or if cancelled
+     */
+    private static boolean prepare(List<EditOperation> operations, ProgressIndicator indicator) {
+        List<EditOperation> textOperations = operations.stream().filter(op -> op.edits != null)
+                .collect(Collectors.toList());
+        indicator.setIndeterminate(false);
+        AtomicInteger done = new AtomicInteger();
+        return JobLauncher.getInstance().invokeConcurrentlyUnderProgress(textOperations, indicator, op -> {
+            boolean valid = op.prepare(false);
+            indicator.setFraction((double) done.incrementAndGet() / textOperations.size());
+            return valid;
+        });
+    }
+
+    /**
+     * The second phase, run in a write action on the EDT. Stops at the first operation which fails. The offsets of a
+     * document which was modified since the first phase are computed again, as the ones of the first phase no longer
+     * apply.
+     *
+     * @return True if all the operations were applied
+     */
+    private static boolean apply(List<EditOperation> operations) {
+        Set<Document> edited = new LinkedHashSet<>();
+        try {
+            for (EditOperation op : operations) {
+                if (op.resourceOperation != null) {
+                    if (!applyResourceOperation(op.resourceOperation)) {
+                        return false;
                     }
-                });
+                } else {
+                    if ((op.document == null || op.document.getModificationStamp() != op.stamp) && !op.prepare(true)) {
+                        return false;
+                    }
+                    DocumentUtil.executeInBulk(op.document, op.sortedEdits.size() > LSPTextEdit.BULK_EDIT_THRESHOLD,
+                            () -> LSPTextEdit.applyAll(op.document, op.sortedEdits));
+                    edited.add(op.document);
+                }
             }
-            if (toApply.contains(null)) {
-                LOG.warn("Didn't apply, null runnable");
-                didApply[0] = false;
-            } else {
-                Runnable runnable = () -> toApply.forEach(Runnable::run);
-                invokeLater(() -> writeAction(() -> {
-                    CommandProcessor.getInstance()
-                            .executeCommand(curProject[0], runnable, name, "LSPPlugin", UndoConfirmationPolicy.DEFAULT,
-                                    false);
-                    openedEditors.forEach(f -> FileEditorManager.getInstance(curProject[0]).closeFile(f));
-                    toClose.forEach(f -> FileEditorManager.getInstance(curProject[0]).closeFile(f));
-                }));
+            return true;
+        } finally {
+            edited.forEach(FileDocumentManager.getInstance()::saveDocument);
+        }
+    }
+
+    private static boolean applyResourceOperation(ResourceOperation operation) {
+        try {
+            if (operation instanceof CreateFile) {
+                CreateFile create = (CreateFile) operation;
+                CreateFileOptions options = create.getOptions();
+                File file = toFile(create.getUri());
+                VirtualFile existing = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(file);
+                if (existing != null) {
+                    if (options != null && Boolean.TRUE.equals(options.getOverwrite())) {
+                        existing.setBinaryContent(new byte[0]);
+                        return true;
+                    }
+                    return logSkipped(operation, options != null && Boolean.TRUE.equals(options.getIgnoreIfExists()));
+                }
+                VirtualFile parent = VfsUtil.createDirectoryIfMissing(file.getParent());
+                if (parent == null) {
+                    return logSkipped(operation, false);
+                }
+                parent.createChildData(WorkspaceEditHandler.class, file.getName());
+            } else if (operation instanceof RenameFile) {
+                RenameFile rename = (RenameFile) operation;
+                RenameFileOptions options = rename.getOptions();
+                VirtualFile source = FileUtils.virtualFileFromURI(rename.getOldUri());
+                File target = toFile(rename.getNewUri());
+                if (source == null) {
+                    return logSkipped(operation, false);
+                }
+                VirtualFile existing = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(target);
+                if (existing != null) {
+                    if (options == null || !Boolean.TRUE.equals(options.getOverwrite())) {
+                        return logSkipped(operation,
+                                options != null && Boolean.TRUE.equals(options.getIgnoreIfExists()));
+                    }
+                    existing.delete(WorkspaceEditHandler.class);
+                }
+                VirtualFile parent = VfsUtil.createDirectoryIfMissing(target.getParent());
+                if (parent == null) {
+                    return logSkipped(operation, false);
+                }
+                if (!parent.equals(source.getParent())) {
+                    source.move(WorkspaceEditHandler.class, parent);
+                }
+                if (!source.getName().equals(target.getName())) {
+                    source.rename(WorkspaceEditHandler.class, target.getName());
+                }
+            } else if (operation instanceof DeleteFile) {
+                DeleteFile delete = (DeleteFile) operation;
+                DeleteFileOptions options = delete.getOptions();
+                VirtualFile file = FileUtils.virtualFileFromURI(delete.getUri());
+                if (file == null) {
+                    return logSkipped(operation,
+                            options != null && Boolean.TRUE.equals(options.getIgnoreIfNotExists()));
+                }
+                if (file.isDirectory() && file.getChildren().length > 0 &&
+                        (options == null || !Boolean.TRUE.equals(options.getRecursive()))) {
+                    return logSkipped(operation, false);
+                }
+                file.delete(WorkspaceEditHandler.class);
             }
-            return didApply[0];
-        } else {
+            return true;
+        } catch (IOException | URISyntaxException e) {
+            LOG.warn(e);
             return false;
         }
     }
 
     /**
-     * Opens an editor when needed and gets the Runnable
-     *
-     * @param edits         The text edits
-     * @param uri           The uri of the file
-     * @param version       The version of the file
-     * @param openedEditors
-     * @param curProject
-     * @param name
-     * @return The runnable containing the edits
+     * Logs a resource operation which couldn't be applied, and returns whether the edit can go on.
      */
-    private static Runnable manageUnopenedEditor(List<TextEdit> edits, String uri, int version,
-                                                 List<VirtualFile> openedEditors, Project[] curProject, String name) {
+    private static boolean logSkipped(ResourceOperation operation, boolean ignored) {
+        if (!ignored) {
+            LOG.warn("Couldn't apply resource operation " + operation);
+        }
+        return ignored;
+    }
+
+    private static String resourceUri(ResourceOperation operation) {
+        if (operation instanceof CreateFile) {
+            return ((CreateFile) operation).getUri();
+        } else if (operation instanceof RenameFile) {
+            return ((RenameFile) operation).getOldUri();
+        } else if (operation instanceof DeleteFile) {
+            return ((DeleteFile) operation).getUri();
+        }
+        return null;
+    }
+
+    private static File toFile(String uri) throws URISyntaxException {
+        return new File(new URI(FileUtils.sanitizeURI(uri)));
+    }
+
+    /**
+     * Infers the project from the uri
+     */
+    private static Project guessProject(String uri) {
         Project[] projects = ProjectManager.getInstance().getOpenProjects();
-        //Infer the project from the uri
-        Project project = Stream.of(projects)
+        return Stream.of(projects)
                 .map(p -> new ImmutablePair<>(FileUtils.VFSToURI(ProjectUtil.guessProjectDir(p)), p))
-                .filter(p -> uri.startsWith(p.getLeft())).sorted(Collections.reverseOrder())
-                .map(ImmutablePair::getRight).findFirst().orElse(projects[0]);
-        VirtualFile file = null;
-        try {
-            file = LocalFileSystem.getInstance().findFileByIoFile(new File(new URI(FileUtils.sanitizeURI(uri))));
-        } catch (URISyntaxException e) {
-            LOG.warn(e);
+                .filter(p -> p.getLeft() != null && uri.startsWith(p.getLeft()))
+                .max(Comparator.comparingInt(p -> p.getLeft().length()))
+                .map(ImmutablePair::getRight).orElse(projects.length > 0 ? projects[0] : null);
+    }
+
+    /**
+     * A document edit or a resource operation of a WorkspaceEdit.
+     */
+    private static class EditOperation {
+        private final String uri;
+        private final int version;
+        private final List<TextEdit> edits;
+        private final ResourceOperation resourceOperation;
+        private volatile Document document;
+        private volatile List<LSPTextEdit> sortedEdits;
+        private volatile long stamp;
+
+        EditOperation(String uri, int version, List<TextEdit> edits, ResourceOperation resourceOperation) {
+            this.uri = uri;
+            this.version = version;
+            this.edits = edits;
+            this.resourceOperation = resourceOperation;
         }
-        FileEditorManager fileEditorManager = FileEditorManager.getInstance(project);
-        OpenFileDescriptor descriptor = new OpenFileDescriptor(project, file);
-        Editor editor = ApplicationUtils
-                .computableWriteAction(() -> fileEditorManager.openTextEditor(descriptor, false));
-        openedEditors.add(file);
-        curProject[0] = editor.getProject();
-        Runnable runnable = null;
-        EditorEventManager manager = EditorEventManagerBase.forEditor(editor);
-        if (manager != null) {
-            runnable = manager.getEditsRunnable(version, edits, name, true);
+
+        /**
+         * Resolves the document and converts the edits to offsets, recording the document version they apply to.
+         *
+         * @param applying True if called while applying, where a missing file is an error
+         * @return false if the edits can't be applied, true otherwise (even if the file doesn't exist yet while
+         * preparing)
+         */
+        boolean prepare(boolean applying) {
+            EditorEventManager manager = EditorEventManagerBase.forUri(uri);
+            if (manager != null) {
+                if (version < manager.getVersion()) {
+                    LOG.warn(String.format("Edit version %d is older than current version %d", version,
+                            manager.getVersion()));
+                    return false;
+                }
+                Document resolved = manager.editor.getDocument();
+                readAction(() -> {
+                    stamp = resolved.getModificationStamp();
+                    sortedEdits = LSPTextEdit.toSortedEdits(resolved, edits);
+                });
+                document = resolved;
+            } else {
+                VirtualFile file = FileUtils.virtualFileFromURI(uri);
+                if (file == null) {
+                    if (applying) {
+                        return logMissing();
+                    }
+                    // Created by a preceding resource operation, if any.
+                    return true;
+                }
+                Document resolved = computableReadAction(() -> FileDocumentManager.getInstance().getDocument(file));
+                if (resolved == null) {
+                    return logMissing();
+                }
+                readAction(() -> {
+                    stamp = resolved.getModificationStamp();
+                    sortedEdits = LSPTextEdit.toSortedEdits(resolved, edits);
+                });
+                document = resolved;
+            }
+            if (!document.isWritable()) {
+                LOG.warn("Document of " + uri + " is not writable");
+                return false;
+            }
+            return true;
+        }
+
+        private boolean logMissing() {
+            LOG.warn("Couldn't find the document of " + uri);
+            return false;
         }
-        return runnable;
     }
 }
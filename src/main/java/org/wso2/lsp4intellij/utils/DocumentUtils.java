@@ -122,6 +122,25 @@ public class DocumentUtils {
         });
     }
 
+    /**
+     * Transforms an LSP position to an offset of a document which is not necessarily opened in an editor
+     *
+     * @param doc The document
+     * @param pos The LSPPos
+     * @return The offset
+     */
+    public static int LSPPosToOffset(Document doc, Position pos) {
+        return computableReadAction(() -> {
+            if (doc.getLineCount() == 0) {
+                return 0;
+            }
+            int line = Math.max(0, Math.min(pos.getLine(), doc.getLineCount() - 1));
+            int lineStart = doc.getLineStartOffset(line);
+            int lineLength = doc.getLineEndOffset(line) - lineStart;
+            return lineStart + Math.max(0, min(lineLength, pos.getCharacter()));
+        });
+    }
+
     /**
      * Transforms an LSP position to an editor offset
      *
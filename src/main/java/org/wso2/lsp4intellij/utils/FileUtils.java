@@ -26,10 +26,11 @@ import com.intellij.openapi.fileEditor.TextEditor;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
-import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -66,6 +67,11 @@ public class FileUtils {
     private final static char URI_PATH_SEP = '/';
 
     private static final Logger LOG = Logger.getInstance(FileUtils.class);
+    private static volatile PathTrie<Project> contentRoots;
+    // Incremented on each invalidation, so that a rebuild which raced with one is not published. Guarded by the
+    // contentRootsLock.
+    private static long contentRootsGeneration;
+    private static final Object contentRootsLock = new Object();
 
     public static List<Editor> getAllOpenedEditors(Project project) {
         return computableReadAction(() -> {
@@ -316,13 +322,60 @@ public class FileUtils {
 
     /**
      * Find projects which contains the given file. This search runs among all open projects.
+     * <p>
+     * The candidate projects are looked up by path in a trie of the project content roots, and are confirmed through
+     * the project file index. Deleted files are no longer indexed, hence they are matched by path only.
      */
     @NotNull
     public static Set<Project> findProjectsFor(@NotNull VirtualFile file) {
-        return Arrays.stream(ProjectManager.getInstance().getOpenProjects())
-                .flatMap(p -> Arrays.stream(searchFiles(file.getName(), p)))
-                .filter(f -> f.getVirtualFile().getPath().equals(file.getPath())).map(PsiElement::getProject)
-                .collect(Collectors.toSet());
+        PathTrie<Project> roots = contentRoots;
+        if (roots == null) {
+            long generation;
+            synchronized (contentRootsLock) {
+                generation = contentRootsGeneration;
+            }
+            roots = buildContentRoots();
+            synchronized (contentRootsLock) {
+                // Roots built before a later invalidation may be stale, hence they are only used for this lookup.
+                if (generation == contentRootsGeneration) {
+                    contentRoots = roots;
+                }
+            }
+        }
+        Set<Project> candidates = roots.findAll(file.getPath());
+        if (candidates.isEmpty() || !file.isValid()) {
+            return candidates;
+        }
+        return computableReadAction(() -> candidates.stream()
+                .filter(p -> !p.isDisposed() && ProjectFileIndex.getInstance(p).isInContent(file))
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Drops the cached content roots, which are rebuilt on the next {@link #findProjectsFor(VirtualFile)}. Should be
+     * called when a project is opened or closed, or when its roots are changed.
+     */
+    public static void invalidateContentRoots() {
+        synchronized (contentRootsLock) {
+            contentRootsGeneration++;
+            contentRoots = null;
+        }
+    }
+
+    private static PathTrie<Project> buildContentRoots() {
+        PathTrie<Project> roots = new PathTrie<>();
+        computableReadAction(() -> {
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                if (project.isDisposed()) {
+                    continue;
+                }
+                for (VirtualFile root : ProjectRootManager.getInstance(project).getContentRoots()) {
+                    roots.put(root.getPath(), project);
+                }
+            }
+            return null;
+        });
+        return roots;
     }
 
     public static PsiFile[] searchFiles(String fileName, Project p) {
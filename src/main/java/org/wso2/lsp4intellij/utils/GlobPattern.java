@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+/**
+ * Converts the glob patterns of the LSP file system watchers to regular expressions.
+ * <p>
+ * Supports '*' (any characters within a path segment), '?' (a single character within a path segment), '**' (any
+ * number of path segments, including none), '{a,b}' (any of the given, possibly nested, alternatives) and '[...]'
+ * (a character range, negated with '!' or '^'). Every other character is matched literally.
+ */
+public final class GlobPattern {
+
+    private GlobPattern() {
+    }
+
+    /**
+     * Returns the regular expression matching the same paths as the given glob.
+     */
+    public static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() * 2);
+        int groupDepth = 0;
+        int length = glob.length();
+        for (int i = 0; i < length; i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < length && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < length && glob.charAt(i + 1) == '/') {
+                            // '**/' also matches no segment at all.
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    groupDepth++;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (groupDepth > 0) {
+                        groupDepth--;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(groupDepth > 0 ? "|" : ",");
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 2);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    regex.append('[');
+                    int start = i + 1;
+                    if (glob.charAt(start) == '!' || glob.charAt(start) == '^') {
+                        regex.append('^');
+                        start++;
+                    }
+                    for (int j = start; j < end; j++) {
+                        char r = glob.charAt(j);
+                        if (r == '\\' || r == '[' || r == '&' || r == '^') {
+                            regex.append('\\');
+                        }
+                        regex.append(r);
+                    }
+                    regex.append(']');
+                    i = end;
+                    break;
+                default:
+                    if ("\\.()|+^$".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+            }
+        }
+        // Unterminated alternatives are closed, so that the result is always a valid expression.
+        for (; groupDepth > 0; groupDepth--) {
+            regex.append(')');
+        }
+        return regex.toString();
+    }
+}
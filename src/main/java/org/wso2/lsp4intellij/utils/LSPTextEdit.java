@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import com.intellij.openapi.editor.Document;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextEdit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.wso2.lsp4intellij.utils.ApplicationUtils.computableReadAction;
+
+/**
+ * A text edit with its range converted to document offsets.
+ */
+public class LSPTextEdit implements Comparable<LSPTextEdit> {
+    /**
+     * Edit batches larger than this are applied in bulk mode.
+     */
+    public static final int BULK_EDIT_THRESHOLD = 100;
+
+    private final String text;
+    private final int startOffset;
+    private final int endOffset;
+
+    public LSPTextEdit(String text, int start, int end) {
+        this.text = text;
+        this.startOffset = start;
+        this.endOffset = end;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public int compareTo(@NotNull LSPTextEdit te) {
+        return te.getStartOffset() - getStartOffset();
+    }
+
+    /**
+     * Converts the given edits to offsets of the given document (which doesn't need to be opened in an editor), sorted
+     * from the bottom to the top of the document.
+     *
+     * @param document The document
+     * @param edits    The edits
+     * @return The converted edits
+     */
+    public static List<LSPTextEdit> toSortedEdits(Document document, List<? extends TextEdit> edits) {
+        List<LSPTextEdit> lspEdits = computableReadAction(() -> {
+            List<LSPTextEdit> converted = new ArrayList<>(edits.size());
+            for (TextEdit edit : edits) {
+                Range range = edit.getRange();
+                if (range == null) {
+                    continue;
+                }
+                String text = edit.getNewText() != null ? edit.getNewText() : "";
+                converted.add(new LSPTextEdit(text.replace(DocumentUtils.WIN_SEPARATOR, DocumentUtils.LINUX_SEPARATOR),
+                        DocumentUtils.LSPPosToOffset(document, range.getStart()),
+                        DocumentUtils.LSPPosToOffset(document, range.getEnd())));
+            }
+            return converted;
+        });
+        Collections.sort(lspEdits);
+        return lspEdits;
+    }
+
+    /**
+     * Applies edits sorted by {@link #toSortedEdits(Document, List)} to the document. Must be called in a write action.
+     *
+     * @param document The document
+     * @param edits    The sorted edits
+     */
+    public static void applyAll(Document document, List<LSPTextEdit> edits) {
+        for (LSPTextEdit edit : edits) {
+            int start = edit.getStartOffset();
+            int end = Math.max(start, edit.getEndOffset());
+            if (edit.getText().isEmpty()) {
+                document.deleteString(start, end);
+            } else if (end == start) {
+                document.insertString(start, edit.getText());
+            } else {
+                document.replaceString(start, end, edit.getText());
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A trie of '/' separated paths, used to find the values of all the paths containing a given path in O(path depth).
+ *
+ * @param <V> The value type
+ */
+public class PathTrie<V> {
+
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Adds a value for the given path (e.g. a root directory).
+     */
+    public synchronized void put(String path, V value) {
+        Node<V> node = root;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                node = node.children.computeIfAbsent(segment, k -> new Node<>());
+            }
+        }
+        node.values.add(value);
+    }
+
+    /**
+     * Returns the values of the given path and of all its ancestors.
+     */
+    public synchronized Set<V> findAll(String path) {
+        Set<V> found = new LinkedHashSet<>(root.values);
+        Node<V> node = root;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+            found.addAll(node.values);
+        }
+        return found;
+    }
+
+    private static class Node<V> {
+        private final Map<String, Node<V>> children = new HashMap<>();
+        private final Set<V> values = new LinkedHashSet<>();
+    }
+}
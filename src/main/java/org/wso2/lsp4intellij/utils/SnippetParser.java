@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single pass parser for the LSP snippet syntax (tab stops, placeholders, choices and variables, including
+ * nested placeholders and variable transforms).
+ * <p>
+ * The snippet is split into a flat list of segments. Text segments hold the literal text (with escapes removed and
+ * known variables resolved), while tab stops and unresolved variables are kept as separate segments carrying their
+ * default text. IntelliJ templates cannot nest variables, hence the contents of a nested placeholder are flattened
+ * into the default text of the outermost placeholder.
+ */
+public final class SnippetParser {
+
+    private final String snippet;
+    private final Function<String, String> variableResolver;
+    private final int length;
+    private int pos;
+
+    private SnippetParser(String snippet, Function<String, String> variableResolver) {
+        this.snippet = snippet;
+        this.variableResolver = variableResolver;
+        this.length = snippet.length();
+    }
+
+    /**
+     * Parses the given snippet.
+     *
+     * @param snippet          The snippet text
+     * @param variableResolver Resolves a snippet variable (e.g. TM_FILENAME) to its value, or returns null if the
+     *                         variable is unknown
+     * @return The segments of the snippet, in order
+     */
+    public static List<Segment> parse(String snippet, Function<String, String> variableResolver) {
+        if (snippet.indexOf('$') < 0 && snippet.indexOf('\\') < 0) {
+            return Collections.singletonList(Segment.text(snippet));
+        }
+        SnippetParser parser = new SnippetParser(snippet, variableResolver);
+        List<Segment> segments = new ArrayList<>();
+        parser.parseAny(segments, false);
+        return segments;
+    }
+
+    /**
+     * Returns the text of the snippet, without the tab stops and the unresolved variables.
+     */
+    public static String toPlainText(List<Segment> segments) {
+        if (segments.size() == 1 && segments.get(0).getKind() == Segment.Kind.TEXT) {
+            return segments.get(0).getText();
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.getKind() == Segment.Kind.TEXT) {
+                builder.append(segment.getText());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the tab stops and unresolved variables in the order they are navigated: the tab stops by ascending
+     * index, then the variables in order of appearance, and the final tab stop ($0) last. A repeated tab stop or
+     * variable is only returned once, as its first occurrence.
+     */
+    public static List<Segment> navigationOrder(List<Segment> segments) {
+        Map<String, Segment> firstOccurrences = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            if (segment.getKind() == Segment.Kind.TAB_STOP) {
+                firstOccurrences.putIfAbsent("$" + segment.getIndex(), segment);
+            } else if (segment.getKind() == Segment.Kind.VARIABLE) {
+                firstOccurrences.putIfAbsent(segment.getName(), segment);
+            }
+        }
+        List<Segment> ordered = new ArrayList<>(firstOccurrences.values());
+        // The sort is stable, hence the variables keep their order of appearance.
+        ordered.sort(Comparator.comparingInt(SnippetParser::navigationRank));
+        return ordered;
+    }
+
+    private static int navigationRank(Segment segment) {
+        if (segment.getKind() == Segment.Kind.VARIABLE) {
+            return Integer.MAX_VALUE - 1;
+        }
+        return segment.getIndex() == 0 ? Integer.MAX_VALUE : segment.getIndex();
+    }
+
+    /**
+     * Parses until the end of the snippet, or until an unmatched closing brace if inside a placeholder.
+     */
+    private void parseAny(List<Segment> segments, boolean nested) {
+        StringBuilder text = new StringBuilder();
+        while (pos < length) {
+            char c = snippet.charAt(pos);
+            if (c == '\\' && pos + 1 < length && isEscapable(snippet.charAt(pos + 1), false)) {
+                text.append(snippet.charAt(pos + 1));
+                pos += 2;
+            } else if (c == '}' && nested) {
+                break;
+            } else if (c == '$') {
+                int start = pos;
+                Segment segment = parseDollar();
+                if (segment == null) {
+                    // Not a valid snippet construct, hence the '$' is a literal.
+                    pos = start + 1;
+                    text.append('$');
+                } else if (segment.getKind() == Segment.Kind.TEXT) {
+                    text.append(segment.getText());
+                } else {
+                    if (text.length() > 0) {
+                        segments.add(Segment.text(text.toString()));
+                        text.setLength(0);
+                    }
+                    segments.add(segment);
+                }
+            } else {
+                text.append(c);
+                pos++;
+            }
+        }
+        if (text.length() > 0) {
+            segments.add(Segment.text(text.toString()));
+        }
+    }
+
+    /**
+     * Parses a construct starting with '$', or returns null (without a defined position) if it is malformed.
+     */
+    private Segment parseDollar() {
+        pos++;
+        if (pos >= length) {
+            return null;
+        }
+        char c = snippet.charAt(pos);
+        if (isDigit(c)) {
+            return Segment.tabStop(parseInt(), "", null);
+        } else if (isVariableStart(c)) {
+            return resolveVariable(parseVariableName(), null);
+        } else if (c != '{') {
+            return null;
+        }
+
+        pos++;
+        if (pos >= length) {
+            return null;
+        }
+        c = snippet.charAt(pos);
+        if (isDigit(c)) {
+            int index = parseInt();
+            if (pos >= length) {
+                return null;
+            }
+            c = snippet.charAt(pos);
+            if (c == '}') {
+                pos++;
+                return Segment.tabStop(index, "", null);
+            } else if (c == ':') {
+                pos++;
+                String placeholder = parseNestedText();
+                return placeholder != null ? Segment.tabStop(index, placeholder, null) : null;
+            } else if (c == '|') {
+                pos++;
+                List<String> choices = parseChoices();
+                return choices != null ? Segment.tabStop(index, choices.get(0), choices) : null;
+            }
+            return null;
+        } else if (isVariableStart(c)) {
+            String name = parseVariableName();
+            if (pos >= length) {
+                return null;
+            }
+            c = snippet.charAt(pos);
+            if (c == '}') {
+                pos++;
+                return resolveVariable(name, null);
+            } else if (c == ':') {
+                pos++;
+                String defaultValue = parseNestedText();
+                return defaultValue != null ? resolveVariable(name, defaultValue) : null;
+            } else if (c == '/') {
+                pos++;
+                return parseTransform(name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the (possibly nested) contents of a placeholder up to the closing brace, and returns its plain text.
+     */
+    private String parseNestedText() {
+        List<Segment> nested = new ArrayList<>();
+        parseAny(nested, true);
+        if (pos >= length || snippet.charAt(pos) != '}') {
+            return null;
+        }
+        pos++;
+        StringBuilder builder = new StringBuilder();
+        for (Segment segment : nested) {
+            builder.append(segment.getText());
+        }
+        return builder.toString();
+    }
+
+    private List<String> parseChoices() {
+        List<String> choices = new ArrayList<>();
+        StringBuilder choice = new StringBuilder();
+        while (pos < length) {
+            char c = snippet.charAt(pos);
+            if (c == '\\' && pos + 1 < length && isEscapable(snippet.charAt(pos + 1), true)) {
+                choice.append(snippet.charAt(pos + 1));
+                pos += 2;
+            } else if (c == ',') {
+                choices.add(choice.toString());
+                choice.setLength(0);
+                pos++;
+            } else if (c == '|') {
+                if (pos + 1 < length && snippet.charAt(pos + 1) == '}') {
+                    choices.add(choice.toString());
+                    pos += 2;
+                    return choices;
+                }
+                return null;
+            } else {
+                choice.append(c);
+                pos++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a variable transform (${name/regex/format/options}) and applies it on the resolved variable value.
+     */
+    private Segment parseTransform(String name) {
+        String regex = parseUntil('/');
+        String format = regex != null ? parseUntil('/') : null;
+        String options = format != null ? parseUntil('}') : null;
+        if (options == null) {
+            return null;
+        }
+        String value = variableResolver.apply(name);
+        if (value == null) {
+            return Segment.variable(name, name);
+        }
+        try {
+            Pattern pattern = Pattern.compile(regex, options.indexOf('i') >= 0 ? Pattern.CASE_INSENSITIVE : 0);
+            Matcher matcher = pattern.matcher(value);
+            String replacement = format.replaceAll("\\$\\{(\\d+)}", "\\$$1");
+            return Segment.text(options.indexOf('g') >= 0 ? matcher.replaceAll(replacement) :
+                    matcher.replaceFirst(replacement));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Unsupported transforms (e.g. case modifiers) fall back to the plain variable value.
+            return Segment.text(value);
+        }
+    }
+
+    private String parseUntil(char terminator) {
+        StringBuilder builder = new StringBuilder();
+        while (pos < length) {
+            char c = snippet.charAt(pos);
+            if (c == '\\' && pos + 1 < length && snippet.charAt(pos + 1) == terminator) {
+                builder.append(terminator);
+                pos += 2;
+            } else if (c == terminator) {
+                pos++;
+                return builder.toString();
+            } else {
+                builder.append(c);
+                pos++;
+            }
+        }
+        return null;
+    }
+
+    private Segment resolveVariable(String name, String defaultValue) {
+        String value = variableResolver.apply(name);
+        if (value != null) {
+            return Segment.text(value);
+        }
+        // Unknown variables are inserted as placeholders, using the variable name if there is no default value.
+        return Segment.variable(name, defaultValue != null ? defaultValue : name);
+    }
+
+    private int parseInt() {
+        int value = 0;
+        while (pos < length && isDigit(snippet.charAt(pos))) {
+            value = value * 10 + (snippet.charAt(pos) - '0');
+            pos++;
+        }
+        return value;
+    }
+
+    private String parseVariableName() {
+        int start = pos;
+        while (pos < length && (isVariableStart(snippet.charAt(pos)) || isDigit(snippet.charAt(pos)))) {
+            pos++;
+        }
+        return snippet.substring(start, pos);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isVariableStart(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isEscapable(char c, boolean inChoice) {
+        return c == '$' || c == '}' || c == '\\' || (inChoice && (c == ',' || c == '|'));
+    }
+
+    /**
+     * A segment of a parsed snippet.
+     */
+    public static final class Segment {
+
+        public enum Kind {
+            TEXT, TAB_STOP, VARIABLE
+        }
+
+        private final Kind kind;
+        private final String text;
+        private final int index;
+        private final String name;
+        private final List<String> choices;
+
+        private Segment(Kind kind, String text, int index, String name, List<String> choices) {
+            this.kind = kind;
+            this.text = text;
+            this.index = index;
+            this.name = name;
+            this.choices = choices;
+        }
+
+        static Segment text(String text) {
+            return new Segment(Kind.TEXT, text, -1, null, null);
+        }
+
+        static Segment tabStop(int index, String placeholder, List<String> choices) {
+            return new Segment(Kind.TAB_STOP, placeholder, index, null, choices);
+        }
+
+        static Segment variable(String name, String defaultValue) {
+            return new Segment(Kind.VARIABLE, defaultValue, -1, name, null);
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The literal text for text segments, or the default (placeholder) text otherwise
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return The tab stop index ($0 being the final caret position), or -1 if this is not a tab stop
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return The name of an unresolved variable
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The choices of a choice tab stop, or null
+         */
+        public List<String> getChoices() {
+            return choices;
+        }
+    }
+}
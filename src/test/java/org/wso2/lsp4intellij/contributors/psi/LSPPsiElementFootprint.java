@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.contributors.psi;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import org.mockito.Mockito;
+
+/**
+ * A measurement harness for the retained heap of {@link LSPPsiElement}, run manually through its main method on the
+ * test classpath (it is not a test). It retains a large number of elements and reports the growth of the used heap
+ * per element, first for bare elements and then once their reference has been created.
+ */
+public class LSPPsiElementFootprint {
+
+    private static final int COUNT = 1_000_000;
+    // Keeps the elements reachable while the heap is measured.
+    private static LSPPsiElement[] retained;
+
+    public static void main(String[] args) throws InterruptedException {
+        Project project = Mockito.mock(Project.class);
+        PsiFile file = Mockito.mock(PsiFile.class);
+        retained = new LSPPsiElement[COUNT];
+        // Loads and initializes the classes before measuring.
+        new LSPPsiElement(project, 0, 1, file).getReference();
+
+        long before = usedHeap();
+        for (int i = 0; i < COUNT; i++) {
+            retained[i] = new LSPPsiElement(project, i, i + 1, file);
+        }
+        long elements = usedHeap();
+        for (LSPPsiElement element : retained) {
+            element.getReference();
+        }
+        long withReferences = usedHeap();
+
+        System.out.printf("%-22s %.1f bytes%n", "element:", (elements - before) / (double) COUNT);
+        System.out.printf("%-22s %.1f bytes%n", "element and reference:", (withReferences - before) / (double) COUNT);
+        System.out.println(retained.length);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+public class GlobPatternTest {
+
+    private static boolean matches(String glob, String path) {
+        return Pattern.matches(GlobPattern.toRegex(glob), path);
+    }
+
+    @Test
+    public void testWildcards() {
+        Assert.assertTrue(matches("**/*.bal", "/home/user/project/main.bal"));
+        Assert.assertTrue(matches("**/*.bal", "main.bal"));
+        Assert.assertFalse(matches("**/*.bal", "/home/user/project/main.bal.txt"));
+        Assert.assertTrue(matches("/home/*/project/?.bal", "/home/user/project/a.bal"));
+        Assert.assertFalse(matches("/home/*/project/?.bal", "/home/user/x/project/a.bal"));
+        Assert.assertTrue(matches("**/node_modules/**", "/home/user/project/node_modules/lib/index.js"));
+        Assert.assertFalse(matches("**/src/**/*.ts", "/home/user/project/node_modules/a.ts"));
+    }
+
+    @Test
+    public void testAlternativesAndRanges() {
+        Assert.assertTrue(matches("**/*.{ts,js}", "/project/a.js"));
+        Assert.assertTrue(matches("**/*.{ts,js}", "/project/a.ts"));
+        Assert.assertFalse(matches("**/*.{ts,js}", "/project/a.json"));
+        Assert.assertTrue(matches("**/file[0-9].txt", "/project/file1.txt"));
+        Assert.assertFalse(matches("**/file[!0-9].txt", "/project/file1.txt"));
+        Assert.assertTrue(matches("**/file[!0-9].txt", "/project/fileA.txt"));
+    }
+
+    @Test
+    public void testLiterals() {
+        Assert.assertTrue(matches("**/a+b (1).txt", "/project/a+b (1).txt"));
+        Assert.assertFalse(matches("**/a.txt", "/project/abtxt"));
+        Assert.assertTrue(matches("**/{a,b", "/project/b"));
+    }
+}
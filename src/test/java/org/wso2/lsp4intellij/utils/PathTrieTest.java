@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class PathTrieTest {
+
+    @Test
+    public void testFindAll() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/home/user/project", "project");
+        trie.put("/home/user/project/module", "module");
+        trie.put("/home/user/other", "other");
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList("project", "module")),
+                trie.findAll("/home/user/project/module/src/main.bal"));
+        Assert.assertEquals(Collections.singleton("project"), trie.findAll("/home/user/project/main.bal"));
+        Assert.assertEquals(Collections.singleton("other"), trie.findAll("/home/user/other"));
+    }
+
+    @Test
+    public void testNoPartialSegmentMatch() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/home/user/project", "project");
+
+        Assert.assertTrue(trie.findAll("/home/user/project2/main.bal").isEmpty());
+        Assert.assertTrue(trie.findAll("/home/user").isEmpty());
+        Assert.assertTrue(trie.findAll("C:/other/main.bal").isEmpty());
+    }
+}
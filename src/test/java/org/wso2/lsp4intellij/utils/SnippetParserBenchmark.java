@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import java.util.List;
+
+/**
+ * A minimal timing harness for {@link SnippetParser}, run manually through its main method (it is not a test). It
+ * reports the average time to parse a snippet and build its plain text and tab order, as done on completion.
+ */
+public class SnippetParserBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 20_000;
+
+    public static void main(String[] args) {
+        StringBuilder large = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            large.append("call(${").append(i).append(":arg").append(i).append("}, $TM_FILENAME);\n");
+        }
+        large.append("$0");
+
+        report("small snippet (2 placeholders)", "foo(${1:first}, ${2:second})$0");
+        report("nested and choices", "${1:new ${2:Foo}(${3|a,b,c|})} \\$literal ${UNKNOWN:default}$0");
+        report("200 placeholders (" + large.length() / 1024 + " KB)", large.toString());
+    }
+
+    private static void report(String name, String snippet) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += run(snippet);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += run(snippet);
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / MEASURED_ITERATIONS;
+        System.out.printf("%-35s %10.2f us/op (%d)%n", name, micros, sink % 10);
+    }
+
+    private static int run(String snippet) {
+        List<SnippetParser.Segment> segments = SnippetParser.parse(snippet,
+                variable -> "TM_FILENAME".equals(variable) ? "main.bal" : null);
+        return SnippetParser.toPlainText(segments).length() + SnippetParser.navigationOrder(segments).size();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wso2.lsp4intellij.utils.SnippetParser.Segment;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SnippetParserTest {
+
+    private static List<Segment> parse(String snippet) {
+        return SnippetParser.parse(snippet, name -> "TM_FILENAME".equals(name) ? "main.bal" : null);
+    }
+
+    @Test
+    public void testPlainText() {
+        List<Segment> segments = parse("foo(bar)");
+        Assert.assertEquals(1, segments.size());
+        Assert.assertEquals("foo(bar)", SnippetParser.toPlainText(segments));
+    }
+
+    @Test
+    public void testTabStopsAndPlaceholders() {
+        List<Segment> segments = parse("foo(${1:arg}, $2)$0");
+        Assert.assertEquals("foo(, )", SnippetParser.toPlainText(segments));
+        Assert.assertEquals(6, segments.size());
+        Assert.assertEquals(Segment.Kind.TAB_STOP, segments.get(1).getKind());
+        Assert.assertEquals(1, segments.get(1).getIndex());
+        Assert.assertEquals("arg", segments.get(1).getText());
+        Assert.assertEquals(2, segments.get(3).getIndex());
+        Assert.assertEquals(0, segments.get(5).getIndex());
+    }
+
+    @Test
+    public void testFinalTabStopWithPlaceholder() {
+        List<Segment> segments = parse("return ${0:result};");
+        Assert.assertEquals("return ;", SnippetParser.toPlainText(segments));
+        Assert.assertEquals(Segment.Kind.TAB_STOP, segments.get(1).getKind());
+        Assert.assertEquals(0, segments.get(1).getIndex());
+        Assert.assertEquals("result", segments.get(1).getText());
+    }
+
+    @Test
+    public void testNavigationOrder() {
+        List<Segment> order = SnippetParser.navigationOrder(parse("${0:end} ${2:b} $UNKNOWN ${1:a} $2"));
+        Assert.assertEquals(4, order.size());
+        Assert.assertEquals(1, order.get(0).getIndex());
+        Assert.assertEquals(2, order.get(1).getIndex());
+        Assert.assertEquals("b", order.get(1).getText());
+        Assert.assertEquals("UNKNOWN", order.get(2).getName());
+        Assert.assertEquals(0, order.get(3).getIndex());
+        Assert.assertEquals("end", order.get(3).getText());
+    }
+
+    @Test
+    public void testNestedPlaceholders() {
+        List<Segment> segments = parse("${1:new ${2:Foo}(${3:x})}");
+        Assert.assertEquals(1, segments.size());
+        Assert.assertEquals("new Foo(x)", segments.get(0).getText());
+    }
+
+    @Test
+    public void testChoices() {
+        List<Segment> segments = parse("${1|public,private,pro\\,tected|}");
+        Assert.assertEquals(Arrays.asList("public", "private", "pro,tected"), segments.get(0).getChoices());
+        Assert.assertEquals("public", segments.get(0).getText());
+    }
+
+    @Test
+    public void testVariables() {
+        Assert.assertEquals("file main.bal", SnippetParser.toPlainText(parse("file $TM_FILENAME")));
+        Assert.assertEquals("main", SnippetParser.toPlainText(parse("${TM_FILENAME/(.*)\\..+$/$1/}")));
+
+        List<Segment> segments = parse("${UNKNOWN:default}");
+        Assert.assertEquals(Segment.Kind.VARIABLE, segments.get(0).getKind());
+        Assert.assertEquals("default", segments.get(0).getText());
+    }
+
+    @Test
+    public void testEscapesAndLiterals() {
+        Assert.assertEquals("a$b}c\\d", SnippetParser.toPlainText(parse("a\\$b\\}c\\\\d")));
+        Assert.assertEquals("cost: $ 5", SnippetParser.toPlainText(parse("cost: $ 5")));
+        Assert.assertEquals("${1:unterminated", SnippetParser.toPlainText(parse("${1:unterminated")));
+    }
+}
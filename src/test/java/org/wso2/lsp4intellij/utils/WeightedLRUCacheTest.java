@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.lsp4intellij.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WeightedLRUCacheTest {
+
+    private static WeightedLRUCache<String, String> newCache(long maxWeight) {
+        return new WeightedLRUCache<>(maxWeight, (key, value) -> key.length() + value.length());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOverBudget() {
+        WeightedLRUCache<String, String> cache = newCache(10);
+        cache.put("a", "1111");
+        cache.put("b", "2222");
+        Assert.assertEquals("1111", cache.get("a"));
+        cache.put("c", "3333");
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals("1111", cache.get("a"));
+        Assert.assertEquals("3333", cache.get("c"));
+        Assert.assertEquals(10, cache.getWeight());
+    }
+
+    @Test
+    public void testKeepsLargeEntry() {
+        WeightedLRUCache<String, String> cache = newCache(10);
+        cache.put("a", "1");
+        cache.put("large", "0123456789");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("0123456789", cache.get("large"));
+        cache.put("a", "1");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(2, cache.getWeight());
+    }
+
+    @Test
+    public void testReplaceUpdatesWeight() {
+        WeightedLRUCache<String, String> cache = newCache(100);
+        cache.put("a", "1111");
+        cache.put("a", "11");
+        Assert.assertEquals(3, cache.getWeight());
+        cache.clear();
+        Assert.assertEquals(0, cache.getWeight());
+        Assert.assertEquals(0, cache.size());
+    }
+}